@@ -23,26 +23,42 @@
 package com.symphony.adminbot.api;
 
 import com.symphony.adminbot.api.impl.AbstractV1AdminService;
+import com.symphony.adminbot.bootstrap.service.BootstrapJobService;
+import com.symphony.adminbot.bootstrap.service.BulkOnboardingService;
 import com.symphony.adminbot.bootstrap.service.DeveloperBootstrapService;
+import com.symphony.adminbot.bootstrap.service.SignUpFormReader;
 import com.symphony.adminbot.commons.BotConstants;
 import com.symphony.adminbot.config.BotConfig;
 import com.symphony.adminbot.health.HealthCheckFailedException;
 import com.symphony.adminbot.health.HealthcheckHelper;
+import com.symphony.adminbot.model.idempotency.IdempotencyManager;
 import com.symphony.adminbot.model.session.AdminBotSession;
 import com.symphony.adminbot.model.session.AdminBotUserSession;
 import com.symphony.adminbot.model.session.AdminBotUserSessionManager;
+import com.symphony.api.adminbot.model.BootstrapJob;
 import com.symphony.api.adminbot.model.Developer;
 import com.symphony.api.adminbot.model.DeveloperBootstrapInfo;
 import com.symphony.api.adminbot.model.DeveloperSignUpForm;
+import com.symphony.api.adminbot.model.DeveloperWelcomeDetail;
+import com.symphony.api.adminbot.model.DeveloperWelcomeResponse;
 import com.symphony.api.adminbot.model.HealthcheckResponse;
 import com.symphony.api.adminbot.model.NewTeamMembersDetail;
 import com.symphony.api.pod.client.ApiException;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
 import javax.ws.rs.ForbiddenException;
 import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.core.StreamingOutput;
 
 
 /**
@@ -50,13 +66,26 @@ import javax.ws.rs.InternalServerErrorException;
  */
 public class V1AdminApi extends AbstractV1AdminService {
   private static final Logger LOG = LoggerFactory.getLogger(V1AdminApi.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
 
   private AdminBotUserSessionManager adminSessionManager;
   private AdminBotSession adminBotSession;
+  private BootstrapJobService bootstrapJobService;
+  private BulkOnboardingService bulkOnboardingService;
+  private IdempotencyManager idempotencyManager;
 
   public V1AdminApi(AdminBotUserSessionManager adminSessionManager, AdminBotSession adminBotSession){
     this.adminSessionManager = adminSessionManager;
     this.adminBotSession = adminBotSession;
+    this.bootstrapJobService = new BootstrapJobService(
+        Integer.parseInt(System.getProperty(BotConfig.JOB_THREADS)),
+        Integer.parseInt(System.getProperty(BotConfig.JOB_QUEUE_SIZE)),
+        Long.parseLong(System.getProperty(BotConfig.JOB_MAX)));
+    this.bulkOnboardingService = new BulkOnboardingService(
+        Integer.parseInt(System.getProperty(BotConfig.BULK_THREADS)));
+    this.idempotencyManager = new IdempotencyManager(
+        System.getProperty(BotConfig.DEVELOPER_JSON_DIR),
+        Long.parseLong(System.getProperty(BotConfig.IDEMPOTENCY_TTL_HOURS)));
   }
 
   @Override
@@ -96,6 +125,70 @@ public class V1AdminApi extends AbstractV1AdminService {
     return BotConstants.DEVELOPER_WELCOME_SUCCESS;
   }
 
+  @Override
+  public BootstrapJob bootstrapDeveloperAsync(Developer developer) {
+    DeveloperBootstrapService signUpService = adminBotSession.getBootstrapService();
+    return bootstrapJobService.submit(progress -> {
+      DeveloperWelcomeResponse response = new DeveloperWelcomeResponse();
+      response.setBootstrapInfo(signUpService.bootstrapDeveloper(developer, progress));
+      return response;
+    });
+  }
+
+  @Override
+  public BootstrapJob sendDeveloperWelcomeAsync(DeveloperWelcomeDetail welcomeDetail) {
+    DeveloperBootstrapService signUpService = adminBotSession.getBootstrapService();
+    DeveloperSignUpForm signUpForm = welcomeDetail.getSignUpForm();
+    //Invalid sign up forms are rejected right away, rather than as failed jobs
+    try {
+      signUpService.validateSignUpForm(signUpForm);
+    } catch (ApiException e) {
+      LOG.error("Send partner welcome failed:", e);
+      throw new InternalServerErrorException(BotConstants.INTERNAL_ERROR);
+    }
+
+    boolean autoBootstrap = welcomeDetail.getWelcomeSettings().getAutoBootstrap();
+    return bootstrapJobService.submit(progress -> {
+      DeveloperWelcomeResponse response = new DeveloperWelcomeResponse();
+      signUpService.welcomeValidatedDeveloper(signUpForm, progress);
+      response.setMessage(BotConstants.DEVELOPER_WELCOME_SUCCESS);
+      if (autoBootstrap) {
+        response.setBootstrapInfo(signUpService.bootstrapDevelopers(signUpForm, progress));
+      }
+      return response;
+    });
+  }
+
+  @Override
+  public BootstrapJob getBootstrapJob(String jobId) {
+    return bootstrapJobService.getJob(jobId);
+  }
+
+  @Override
+  public StreamingOutput onboardDevelopers(String format, String signUpForms) {
+    DeveloperBootstrapService signUpService = adminBotSession.getBootstrapService();
+    //Unreadable uploads are rejected before the response starts streaming
+    List<SignUpFormReader.Record> records = bulkOnboardingService.read(signUpForms, format);
+    return new IdempotencyManager.ReplayableOutput() {
+      private volatile boolean replayable;
+
+      @Override
+      public void write(OutputStream output) throws IOException {
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        replayable = bulkOnboardingService.onboard(signUpService, records, result -> {
+          writer.write(MAPPER.writeValueAsString(result));
+          writer.write("\n");
+          writer.flush();
+        });
+      }
+
+      @Override
+      public boolean isReplayable() {
+        return replayable;
+      }
+    };
+  }
+
   @Override
   protected DeveloperBootstrapInfo addTeamMembers(NewTeamMembersDetail newTeamMembersDetail) {
     DeveloperBootstrapService signUpService = adminBotSession.getBootstrapService();
@@ -109,6 +202,11 @@ public class V1AdminApi extends AbstractV1AdminService {
     }
   }
 
+  @Override
+  protected IdempotencyManager getIdempotencyManager() {
+    return idempotencyManager;
+  }
+
   @Override
   public AdminBotUserSession getAdminUserSession(String sessionToken) {
     AdminBotUserSession adminSession = adminSessionManager.getAdminSession(sessionToken);
@@ -23,8 +23,10 @@
 package com.symphony.adminbot.api.impl;
 
 import com.symphony.adminbot.commons.BotConstants;
+import com.symphony.adminbot.model.idempotency.IdempotencyManager;
 import com.symphony.adminbot.model.session.AdminBotUserSession;
 import com.symphony.api.adminbot.api.V1ApiService;
+import com.symphony.api.adminbot.model.BootstrapJob;
 import com.symphony.api.adminbot.model.Developer;
 import com.symphony.api.adminbot.model.DeveloperBootstrapInfo;
 import com.symphony.api.adminbot.model.DeveloperSignUpForm;
@@ -34,48 +36,96 @@ import com.symphony.api.adminbot.model.HealthcheckResponse;
 import com.symphony.api.adminbot.model.NewTeamMembersDetail;
 import com.symphony.api.adminbot.model.WelcomeSettings;
 
+import java.util.Arrays;
+
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 /**
  * Created by nick.tarsillo on 7/5/17.
  */
 public abstract class AbstractV1AdminService implements V1ApiService {
+  private static final String BULK_MEDIA_TYPE = "application/x-ndjson";
+
   public abstract DeveloperBootstrapInfo bootstrapDeveloper(Developer developer);
 
   public abstract DeveloperBootstrapInfo bootstrapDevelopers(DeveloperSignUpForm signUpForm);
 
   public abstract String sendDeveloperWelcome(DeveloperSignUpForm signUpForm);
 
+  public abstract BootstrapJob bootstrapDeveloperAsync(Developer developer);
+
+  public abstract BootstrapJob sendDeveloperWelcomeAsync(DeveloperWelcomeDetail welcomeDetail);
+
+  public abstract BootstrapJob getBootstrapJob(String jobId);
+
+  public abstract StreamingOutput onboardDevelopers(String format, String signUpForms);
+
   public abstract AdminBotUserSession getAdminUserSession(String sessionToken);
 
   protected abstract DeveloperBootstrapInfo addTeamMembers(NewTeamMembersDetail newTeamMembersDetail);
 
   public abstract HealthcheckResponse healthcheck();
 
+  protected abstract IdempotencyManager getIdempotencyManager();
+
   @Override
   public Response v1HealthcheckGet() {
     return Response.ok(healthcheck()).build();
   }
 
   @Override
-  public Response v1BootstrapDeveloperPost(String sessionToken, Developer
+  public Response v1BootstrapDeveloperPost(String sessionToken, String idempotencyKey, Developer
       developer) {
     getAdminUserSession(sessionToken);
-    return Response.ok(bootstrapDeveloper(developer)).build();
+    return getIdempotencyManager().execute(idempotencyKey, "bootstrapDeveloper", developer,
+        () -> Response.ok(bootstrapDeveloper(developer)).build());
   }
 
   @Override
-  public Response v1SendDeveloperWelcomePost(String sessionToken, DeveloperWelcomeDetail welcomeDetail) {
+  public Response v1BootstrapDeveloperAsyncPost(String sessionToken, String idempotencyKey,
+      Developer developer) {
     getAdminUserSession(sessionToken);
-    DeveloperWelcomeResponse developerWelcomeResponse = new DeveloperWelcomeResponse();
+    return getIdempotencyManager().execute(idempotencyKey, "bootstrapDeveloperAsync", developer,
+        () -> Response.status(Response.Status.ACCEPTED).entity(bootstrapDeveloperAsync(developer))
+            .build());
+  }
 
-    String message = sendDeveloperWelcome(welcomeDetail.getSignUpForm());
-    developerWelcomeResponse.setMessage(message);
+  @Override
+  public Response v1BootstrapJobJobIdGet(String jobId, String sessionToken) {
+    getAdminUserSession(sessionToken);
+    BootstrapJob bootstrapJob = getBootstrapJob(jobId);
+    if(bootstrapJob == null) {
+      throw new NotFoundException(BotConstants.JOB_NOT_FOUND);
+    }
+
+    return Response.ok(bootstrapJob).build();
+  }
 
+  @Override
+  public Response v1SendDeveloperWelcomePost(String sessionToken, String idempotencyKey,
+      DeveloperWelcomeDetail welcomeDetail) {
+    getAdminUserSession(sessionToken);
     if(welcomeDetail.getWelcomeSettings() == null) {
       welcomeDetail.setWelcomeSettings(new WelcomeSettings());
     }
 
+    return getIdempotencyManager().execute(idempotencyKey, "sendDeveloperWelcome", welcomeDetail,
+        () -> welcomeDevelopers(welcomeDetail));
+  }
+
+  private Response welcomeDevelopers(DeveloperWelcomeDetail welcomeDetail) {
+    if(Boolean.TRUE.equals(welcomeDetail.getWelcomeSettings().getAsync())) {
+      return Response.status(Response.Status.ACCEPTED)
+          .entity(sendDeveloperWelcomeAsync(welcomeDetail)).build();
+    }
+
+    DeveloperWelcomeResponse developerWelcomeResponse = new DeveloperWelcomeResponse();
+
+    String message = sendDeveloperWelcome(welcomeDetail.getSignUpForm());
+    developerWelcomeResponse.setMessage(message);
+
     if(welcomeDetail.getWelcomeSettings().getAutoBootstrap()) {
       DeveloperBootstrapInfo bootstrapInfo = bootstrapDevelopers(welcomeDetail.getSignUpForm());
       developerWelcomeResponse.setBootstrapInfo(bootstrapInfo);
@@ -85,12 +135,25 @@ public abstract class AbstractV1AdminService implements V1ApiService {
   }
 
   @Override
-  public Response v1AddTeamMembersPost(String sessionToken, NewTeamMembersDetail newTeamMembersDetail) {
+  public Response v1SendDeveloperWelcomeBulkPost(String sessionToken, String idempotencyKey,
+      String format, String signUpForms) {
     getAdminUserSession(sessionToken);
-    DeveloperBootstrapInfo developerBootstrapInfo = addTeamMembers(newTeamMembersDetail);
-    DeveloperWelcomeResponse developerWelcomeResponse = new DeveloperWelcomeResponse();
-    developerWelcomeResponse.setMessage(BotConstants.DEVELOPER_WELCOME_SUCCESS);
-    developerWelcomeResponse.setBootstrapInfo(developerBootstrapInfo);
-    return Response.ok(developerWelcomeResponse).build();
+    return getIdempotencyManager().execute(idempotencyKey, "sendDeveloperWelcomeBulk",
+        Arrays.asList(format, signUpForms),
+        () -> Response.ok(onboardDevelopers(format, signUpForms), BULK_MEDIA_TYPE).build());
+  }
+
+  @Override
+  public Response v1AddTeamMembersPost(String sessionToken, String idempotencyKey,
+      NewTeamMembersDetail newTeamMembersDetail) {
+    getAdminUserSession(sessionToken);
+    return getIdempotencyManager().execute(idempotencyKey, "addTeamMembers", newTeamMembersDetail,
+        () -> {
+          DeveloperBootstrapInfo developerBootstrapInfo = addTeamMembers(newTeamMembersDetail);
+          DeveloperWelcomeResponse developerWelcomeResponse = new DeveloperWelcomeResponse();
+          developerWelcomeResponse.setMessage(BotConstants.DEVELOPER_WELCOME_SUCCESS);
+          developerWelcomeResponse.setBootstrapInfo(developerBootstrapInfo);
+          return Response.ok(developerWelcomeResponse).build();
+        });
   }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.bootstrap.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The bootstrap steps a team already completed, and what they produced.
+ * Saved next to the developer states, so a retried bootstrap skips the steps that finished,
+ * even after a restart.
+ */
+public class BootstrapJournal {
+  private String teamKey;
+  private ConcurrentHashMap<String, BootstrapJournalEntry> completedSteps = new ConcurrentHashMap<>();
+
+  public BootstrapJournal() {}
+
+  public BootstrapJournal(String teamKey) {
+    this.teamKey = teamKey;
+  }
+
+  /**
+   * Gets a team wide step.
+   * @param step the step
+   * @return the entry, or null if the step did not complete
+   */
+  public BootstrapJournalEntry getEntry(BootstrapStep step) {
+    return completedSteps.get(step.name());
+  }
+
+  /**
+   * Gets a step done once per developer.
+   * @param step the step
+   * @param developerEmail the developer the step was done for
+   * @return the entry, or null if the step did not complete
+   */
+  public BootstrapJournalEntry getEntry(BootstrapStep step, String developerEmail) {
+    return completedSteps.get(step.name() + ":" + developerEmail);
+  }
+
+  public void complete(BootstrapStep step, BootstrapJournalEntry entry) {
+    completedSteps.put(step.name(), entry);
+  }
+
+  public void complete(BootstrapStep step, String developerEmail, BootstrapJournalEntry entry) {
+    completedSteps.put(step.name() + ":" + developerEmail, entry);
+  }
+
+  public String getTeamKey() {
+    return teamKey;
+  }
+
+  public Map<String, BootstrapJournalEntry> getCompletedSteps() {
+    return completedSteps;
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.bootstrap.model;
+
+import com.symphony.api.agent.model.AttachmentInfo;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A completed bootstrap step, with the ids of what it created.
+ */
+public class BootstrapJournalEntry {
+  public static final String BOT_USERNAME = "botUsername";
+  public static final String BOT_USER_ID = "botUserId";
+  public static final String APP_ID = "appId";
+  public static final String CERT_PEM = "certPem";
+  public static final String ROOM_ID = "roomId";
+
+  private long completedAt;
+  private Map<String, String> results = new HashMap<>();
+  private List<AttachmentInfo> attachmentInfo;
+
+  public BootstrapJournalEntry() {
+    this.completedAt = System.currentTimeMillis();
+  }
+
+  public BootstrapJournalEntry result(String name, String value) {
+    results.put(name, value);
+    return this;
+  }
+
+  public String getResult(String name) {
+    return results.get(name);
+  }
+
+  public long getCompletedAt() {
+    return completedAt;
+  }
+
+  public List<AttachmentInfo> getAttachmentInfo() {
+    return attachmentInfo;
+  }
+
+  public void setAttachmentInfo(List<AttachmentInfo> attachmentInfo) {
+    this.attachmentInfo = attachmentInfo;
+  }
+}
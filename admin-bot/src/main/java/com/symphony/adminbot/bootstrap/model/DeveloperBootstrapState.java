@@ -35,6 +35,7 @@ import com.symphony.api.pod.model.UserDetail;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by nick.tarsillo on 7/2/17.
@@ -50,7 +51,8 @@ public class DeveloperBootstrapState {
   private ApplicationDetail applicationDetail;
   private Stream developerIM;
   private Stream developerRoom;
-  private Map<String, CompanyCert> companyCertMap;
+  //Concrete type, so states loaded from disk also get a concurrent map
+  private ConcurrentHashMap<String, CompanyCert> companyCertMap;
   private List<AttachmentInfo> certAttachmentInfo;
   private DeveloperBootstrapInfo bootstrapInfo;
 
@@ -115,9 +117,12 @@ public class DeveloperBootstrapState {
     return companyCertMap;
   }
 
+  /**
+   * The bot and app certs are registered at the same time, so the map is copied into a concurrent map.
+   */
   public void setCompanyCertMap(
       Map<String, CompanyCert> companyCertMap) {
-    this.companyCertMap = companyCertMap;
+    this.companyCertMap = companyCertMap == null ? null : new ConcurrentHashMap<>(companyCertMap);
   }
 
   public ApplicationDetail getApplicationDetail() {
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.bootstrap.service;
+
+import com.symphony.adminbot.bootstrap.model.BootstrapProgress;
+import com.symphony.adminbot.bootstrap.model.BootstrapStep;
+import com.symphony.adminbot.commons.BotConstants;
+import com.symphony.api.adminbot.model.BootstrapJob;
+import com.symphony.api.adminbot.model.BootstrapJobStep;
+import com.symphony.api.adminbot.model.DeveloperWelcomeResponse;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.WebApplicationException;
+
+/**
+ * Runs welcomes and bootstraps as background jobs, so they do not hold a request thread.
+ * Jobs run on a dedicated pool with a bounded queue, and are kept in a bounded store
+ * until they expire.
+ */
+public class BootstrapJobService {
+  private static final Logger LOG = LoggerFactory.getLogger(BootstrapJobService.class);
+
+  private final Cache<String, JobRecord> jobs;
+  private final ExecutorService jobExecutor;
+
+  /**
+   * @param threads the number of jobs that run at the same time
+   * @param queueSize the number of jobs that can wait to run
+   * @param maxJobs the number of jobs kept for polling
+   */
+  public BootstrapJobService(int threads, int queueSize, long maxJobs) {
+    this.jobs = CacheBuilder.newBuilder()
+        .maximumSize(maxJobs)
+        .expireAfterWrite(BotConstants.EXPIRE_TIME_DAYS, TimeUnit.DAYS)
+        .build();
+
+    int poolSize = Math.max(threads, 1);
+    AtomicInteger threadCount = new AtomicInteger();
+    this.jobExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Math.max(queueSize, 1)), runnable -> {
+          Thread thread = new Thread(runnable, "bootstrap-job-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * Queues a job.
+   * @param task the welcome or bootstrap to run
+   * @return the queued job
+   * @throws ServiceUnavailableException if the job queue is full
+   */
+  public BootstrapJob submit(BootstrapTask task) {
+    JobRecord job = new JobRecord(UUID.randomUUID().toString());
+    jobs.put(job.getJobId(), job);
+    try {
+      jobExecutor.execute(() -> job.run(task));
+    } catch (RejectedExecutionException e) {
+      jobs.invalidate(job.getJobId());
+      LOG.warn("Bootstrap job queue is full, rejected job " + job.getJobId() + ".");
+      throw new ServiceUnavailableException(BotConstants.JOB_QUEUE_FULL);
+    }
+
+    LOG.info("Queued bootstrap job " + job.getJobId() + ".");
+    return job.toBootstrapJob();
+  }
+
+  /**
+   * Gets the current status of a job.
+   * @param jobId the job id
+   * @return the job, or null if it does not exist or expired
+   */
+  public BootstrapJob getJob(String jobId) {
+    JobRecord job = jobs.getIfPresent(jobId);
+    return job == null ? null : job.toBootstrapJob();
+  }
+
+  /**
+   * A welcome or bootstrap to run as a job.
+   */
+  public interface BootstrapTask {
+    DeveloperWelcomeResponse run(BootstrapProgress progress) throws Exception;
+  }
+
+  /**
+   * The mutable state of a job. Steps are reported from several threads,
+   * so the job is only read through snapshots.
+   */
+  private static class JobRecord implements BootstrapProgress {
+    private final String jobId;
+    private final Map<BootstrapStep, BootstrapJobStep> steps = new LinkedHashMap<>();
+    private BootstrapJob.StatusEnum status = BootstrapJob.StatusEnum.QUEUED;
+    private DeveloperWelcomeResponse result;
+    private String error;
+
+    JobRecord(String jobId) {
+      this.jobId = jobId;
+    }
+
+    String getJobId() {
+      return jobId;
+    }
+
+    void run(BootstrapTask task) {
+      synchronized (this) {
+        status = BootstrapJob.StatusEnum.RUNNING;
+      }
+
+      try {
+        DeveloperWelcomeResponse taskResult = task.run(this);
+        synchronized (this) {
+          result = taskResult;
+          status = BootstrapJob.StatusEnum.SUCCEEDED;
+        }
+        LOG.info("Bootstrap job " + jobId + " succeeded.");
+      } catch (Exception e) {
+        LOG.error("Bootstrap job " + jobId + " failed: ", e);
+        synchronized (this) {
+          //Web application errors carry the same messages the synchronous endpoints return
+          error = e instanceof WebApplicationException ? e.getMessage() : BotConstants.INTERNAL_ERROR;
+          status = BootstrapJob.StatusEnum.FAILED;
+          //Steps still running when the job failed did not finish either
+          long failedAt = System.currentTimeMillis();
+          for (BootstrapJobStep jobStep : steps.values()) {
+            if (jobStep.getStatus() == BootstrapJobStep.StatusEnum.RUNNING) {
+              jobStep.setStatus(BootstrapJobStep.StatusEnum.FAILED);
+              jobStep.setCompletedAt(failedAt);
+            }
+          }
+        }
+      }
+    }
+
+    @Override
+    public synchronized void started(BootstrapStep step) {
+      BootstrapJobStep jobStep = new BootstrapJobStep();
+      jobStep.setStep(step.name());
+      jobStep.setStatus(BootstrapJobStep.StatusEnum.RUNNING);
+      jobStep.setStartedAt(System.currentTimeMillis());
+      steps.put(step, jobStep);
+    }
+
+    @Override
+    public synchronized void completed(BootstrapStep step) {
+      BootstrapJobStep jobStep = steps.get(step);
+      if (jobStep != null) {
+        jobStep.setStatus(BootstrapJobStep.StatusEnum.DONE);
+        jobStep.setCompletedAt(System.currentTimeMillis());
+      }
+    }
+
+    synchronized BootstrapJob toBootstrapJob() {
+      List<BootstrapJobStep> stepSnapshot = new ArrayList<>();
+      for (BootstrapJobStep step : steps.values()) {
+        BootstrapJobStep copy = new BootstrapJobStep();
+        copy.setStep(step.getStep());
+        copy.setStatus(step.getStatus());
+        copy.setStartedAt(step.getStartedAt());
+        copy.setCompletedAt(step.getCompletedAt());
+        stepSnapshot.add(copy);
+      }
+
+      BootstrapJob job = new BootstrapJob();
+      job.setJobId(jobId);
+      job.setStatus(status);
+      job.setSteps(stepSnapshot);
+      job.setError(error);
+      if (result != null) {
+        job.setMessage(result.getMessage());
+        job.setBootstrapInfo(result.getBootstrapInfo());
+      }
+      return job;
+    }
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.bootstrap.service;
+
+import com.symphony.adminbot.bootstrap.model.BootstrapProgress;
+import com.symphony.adminbot.commons.BotConstants;
+import com.symphony.api.adminbot.model.BulkOnboardingResult;
+import com.symphony.api.adminbot.model.DeveloperSignUpForm;
+import com.symphony.api.pod.client.ApiException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.WebApplicationException;
+
+/**
+ * Onboards bulk uploads of sign up forms.
+ * An upload is validated as a whole, then each valid sign up form is welcomed and bootstrapped
+ * on a pool shared by all uploads, so only so many sign up forms are onboarded at a time.
+ * Results are handed back as each sign up form finishes, not in upload order.
+ */
+public class BulkOnboardingService {
+  private static final Logger LOG = LoggerFactory.getLogger(BulkOnboardingService.class);
+
+  private final ExecutorService onboardingExecutor;
+  private final SignUpFormReader signUpFormReader = new SignUpFormReader();
+
+  /**
+   * @param threads the number of sign up forms onboarded at the same time
+   */
+  public BulkOnboardingService(int threads) {
+    int poolSize = Math.max(threads, 1);
+    AtomicInteger threadCount = new AtomicInteger();
+    this.onboardingExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(), runnable -> {
+          Thread thread = new Thread(runnable, "bulk-onboarding-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * Reads the sign up forms of an upload.
+   * @param upload the NDJSON or CSV upload
+   * @param format the upload format, NDJSON if blank
+   * @return the records of the upload
+   * @throws BadRequestException if the format is unknown
+   */
+  public List<SignUpFormReader.Record> read(String upload, String format) {
+    try {
+      return signUpFormReader.read(upload, format);
+    } catch (IllegalArgumentException | IOException e) {
+      throw new BadRequestException(e.getMessage());
+    }
+  }
+
+  /**
+   * Validates, welcomes and bootstraps every sign up form of an upload.
+   * If the results can no longer be written, sign up forms that did not start are dropped,
+   * and the ones being onboarded finish on their own.
+   * @param bootstrapService the service to welcome and bootstrap with
+   * @param records the records of the upload
+   * @param results receives the result of each record as it finishes
+   * @return false if a record failed on a server error, which running the upload again may fix
+   */
+  public boolean onboard(DeveloperBootstrapService bootstrapService,
+      List<SignUpFormReader.Record> records, ResultWriter results) throws IOException {
+    List<SignUpFormReader.Record> readRecords = new ArrayList<>();
+    List<DeveloperSignUpForm> signUpForms = new ArrayList<>();
+    for (SignUpFormReader.Record record : records) {
+      if (record.getError() != null) {
+        results.write(failed(record, BulkOnboardingResult.StageEnum.READ, record.getError()));
+      } else {
+        readRecords.add(record);
+        signUpForms.add(record.getSignUpForm());
+      }
+    }
+
+    Map<Integer, BadRequestException> invalid;
+    try {
+      invalid = bootstrapService.validateSignUpForms(signUpForms);
+    } catch (ApiException e) {
+      LOG.error("Bulk sign up form validation failed: ", e);
+      for (SignUpFormReader.Record record : readRecords) {
+        results.write(failed(record, BulkOnboardingResult.StageEnum.VALIDATE,
+            BotConstants.INTERNAL_ERROR));
+      }
+      return false;
+    }
+
+    CompletionService<BulkOnboardingResult> completionService =
+        new ExecutorCompletionService<>(onboardingExecutor);
+    List<Future<BulkOnboardingResult>> onboardings = new ArrayList<>();
+    AtomicBoolean serverFailure = new AtomicBoolean();
+    for (int index = 0; index < readRecords.size(); index++) {
+      SignUpFormReader.Record record = readRecords.get(index);
+      if (invalid.containsKey(index)) {
+        results.write(failed(record, BulkOnboardingResult.StageEnum.VALIDATE,
+            invalid.get(index).getMessage()));
+      } else {
+        onboardings.add(completionService.submit(
+            () -> onboard(bootstrapService, record, serverFailure)));
+      }
+    }
+
+    try {
+      for (int done = 0; done < onboardings.size(); done++) {
+        results.write(completionService.take().get());
+      }
+      return !serverFailure.get();
+    } catch (IOException e) {
+      cancel(onboardings);
+      throw e;
+    } catch (InterruptedException e) {
+      cancel(onboardings);
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while onboarding sign up forms.", e);
+    } catch (ExecutionException e) {
+      //Onboarding catches everything, this is not expected
+      cancel(onboardings);
+      throw new IllegalStateException("Could not onboard sign up form: ", e.getCause());
+    }
+  }
+
+  /**
+   * Welcomes and bootstraps a validated sign up form.
+   * @param bootstrapService the service to welcome and bootstrap with
+   * @param record the record of the sign up form
+   * @param serverFailure set if the record fails on a server error
+   * @return the result of the record
+   */
+  private BulkOnboardingResult onboard(DeveloperBootstrapService bootstrapService,
+      SignUpFormReader.Record record, AtomicBoolean serverFailure) {
+    DeveloperSignUpForm signUpForm = record.getSignUpForm();
+    BulkOnboardingResult.StageEnum stage = BulkOnboardingResult.StageEnum.WELCOME;
+    try {
+      bootstrapService.welcomeValidatedDeveloper(signUpForm, BootstrapProgress.NONE);
+      stage = BulkOnboardingResult.StageEnum.BOOTSTRAP;
+      BulkOnboardingResult result = newResult(record, stage);
+      result.setBootstrapInfo(bootstrapService.bootstrapDevelopers(signUpForm, BootstrapProgress.NONE));
+      result.setStatus(BulkOnboardingResult.StatusEnum.SUCCEEDED);
+      LOG.info("Onboarded sign up form on line " + record.getLine() + ".");
+      return result;
+    } catch (Exception e) {
+      LOG.error("Onboarding sign up form on line " + record.getLine() + " failed: ", e);
+      if (!(e instanceof WebApplicationException)
+          || ((WebApplicationException) e).getResponse().getStatus() >= 500) {
+        serverFailure.set(true);
+      }
+      //Web application errors carry the same messages the synchronous endpoints return
+      return failed(record, stage,
+          e instanceof WebApplicationException ? e.getMessage() : BotConstants.INTERNAL_ERROR);
+    }
+  }
+
+  private void cancel(List<Future<BulkOnboardingResult>> onboardings) {
+    for (Future<BulkOnboardingResult> onboarding : onboardings) {
+      onboarding.cancel(false);
+    }
+  }
+
+  private BulkOnboardingResult failed(SignUpFormReader.Record record,
+      BulkOnboardingResult.StageEnum stage, String error) {
+    BulkOnboardingResult result = newResult(record, stage);
+    result.setStatus(BulkOnboardingResult.StatusEnum.FAILED);
+    result.setError(error);
+    return result;
+  }
+
+  private BulkOnboardingResult newResult(SignUpFormReader.Record record,
+      BulkOnboardingResult.StageEnum stage) {
+    BulkOnboardingResult result = new BulkOnboardingResult();
+    result.setLine(record.getLine());
+    result.setStage(stage);
+    DeveloperSignUpForm signUpForm = record.getSignUpForm();
+    if (signUpForm != null && signUpForm.getCreator() != null) {
+      result.setCreatorEmail(signUpForm.getCreator().getEmail());
+    }
+    return result;
+  }
+
+  /**
+   * Receives bulk onboarding results. Results are written from a single thread.
+   */
+  public interface ResultWriter {
+    void write(BulkOnboardingResult result) throws IOException;
+  }
+}
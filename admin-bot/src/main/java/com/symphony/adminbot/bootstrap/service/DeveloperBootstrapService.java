@@ -22,6 +22,10 @@
 
 package com.symphony.adminbot.bootstrap.service;
 
+import com.symphony.adminbot.bootstrap.model.BootstrapJournal;
+import com.symphony.adminbot.bootstrap.model.BootstrapJournalEntry;
+import com.symphony.adminbot.bootstrap.model.BootstrapProgress;
+import com.symphony.adminbot.bootstrap.model.BootstrapStep;
 import com.symphony.adminbot.bootstrap.model.DeveloperBootstrapState;
 import com.symphony.adminbot.bots.AdminBot;
 import com.symphony.adminbot.commons.BotConstants;
@@ -33,9 +37,11 @@ import com.symphony.api.adminbot.model.DeveloperSignUpForm;
 import com.symphony.api.clients.SymphonyClient;
 import com.symphony.api.pod.client.ApiException;
 import com.symphony.api.pod.model.ApplicationDetail;
+import com.symphony.api.pod.model.CompanyCert;
 import com.symphony.api.pod.model.Stream;
 import com.symphony.api.pod.model.UserDetail;
 import com.symphony.api.pod.model.UserIdList;
+import com.symphony.api.pod.model.UserV2;
 import com.symphony.api.pod.model.V2RoomDetail;
 
 import com.sun.jndi.toolkit.url.Uri;
@@ -46,24 +52,45 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ws.rs.BadRequestException;
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.ServiceUnavailableException;
 
 /**
  * Created by nick.tarsillo on 7/5/17.
  */
 public class DeveloperBootstrapService {
   private static final Logger LOG = LoggerFactory.getLogger(AdminBot.class);
+  //Shared by all admin bot sessions
+  private static ExecutorService bootstrapExecutor;
+  private static ExecutorService welcomeExecutor;
+  private static ExecutorService validationExecutor;
 
   private ExpiringFileLoaderCache<Developer, DeveloperBootstrapState> developerStateCache;
-  private Set<String> reservedContent = new HashSet<>();
+  private ExpiringFileLoaderCache<String, BootstrapJournal> journalCache;
+  private Set<String> reservedContent = ConcurrentHashMap.newKeySet();
 
   private DeveloperRegistrationService developerRegistrationService;
   private DeveloperMessageService developerMessageService;
@@ -78,6 +105,14 @@ public class DeveloperBootstrapService {
         TimeUnit.DAYS,
         DeveloperBootstrapState.class);
 
+    //Journals are kept by the email of the team's creator, next to the developer states
+    journalCache = new ExpiringFileLoaderCache<>(
+        System.getProperty(BotConfig.DEVELOPER_JSON_DIR),
+        (teamKey) -> teamKey + ".journal",
+        BotConstants.EXPIRE_TIME_DAYS,
+        TimeUnit.DAYS,
+        BootstrapJournal.class);
+
     developerEmailService = new DeveloperEmailService();
     developerRegistrationService = new DeveloperRegistrationService(symClient.getUsersClient(),
         symClient.getApplicationClient());
@@ -97,15 +132,49 @@ public class DeveloperBootstrapService {
    * @return bootstrap info
    */
   public DeveloperBootstrapInfo bootstrapDeveloper(Developer developer) throws ApiException {
+    return bootstrapDeveloper(developer, BootstrapProgress.NONE);
+  }
+
+  /**
+   * Bootstraps a developer, reporting each step to the given progress.
+   * @param developer the bootstrap to base the bootstrap on
+   * @param progress receives the bootstrap steps
+   * @return bootstrap info
+   */
+  public DeveloperBootstrapInfo bootstrapDeveloper(Developer developer, BootstrapProgress progress)
+      throws ApiException {
     DeveloperBootstrapState developerState = getDeveloperState(developer);
-    bootstrap(developerState);
+    bootstrap(developerState, progress);
 
-    if(StringUtils.isNotBlank(developerState.getDeveloperSignUpForm().getAppId())) {
+    BootstrapJournal journal = getJournal(developerState);
+    String developerEmail = developerState.getDeveloper().getEmail();
+    if(StringUtils.isNotBlank(developerState.getDeveloperSignUpForm().getAppId())
+        && journal.getEntry(BootstrapStep.APP_INSTALL, developerEmail) == null) {
+      progress.started(BootstrapStep.APP_INSTALL);
       developerRegistrationService.installApp(developerState);
+      completeStep(journal, BootstrapStep.APP_INSTALL, developerEmail, new BootstrapJournalEntry());
+      progress.completed(BootstrapStep.APP_INSTALL);
+    }
+
+    BootstrapJournalEntry uploadEntry = journal.getEntry(BootstrapStep.CERT_UPLOAD, developerEmail);
+    if(uploadEntry == null) {
+      progress.started(BootstrapStep.CERT_UPLOAD);
+      developerCertService.uploadCerts(developerState);
+      uploadEntry = new BootstrapJournalEntry();
+      uploadEntry.setAttachmentInfo(developerState.getCertAttachmentInfo());
+      completeStep(journal, BootstrapStep.CERT_UPLOAD, developerEmail, uploadEntry);
+      progress.completed(BootstrapStep.CERT_UPLOAD);
+    } else {
+      developerState.setCertAttachmentInfo(uploadEntry.getAttachmentInfo());
     }
 
-    developerCertService.uploadCerts(developerState);
-    developerMessageService.sendBootstrapMessage(developerState);
+    if(journal.getEntry(BootstrapStep.BOOTSTRAP_MESSAGE, developerEmail) == null) {
+      progress.started(BootstrapStep.BOOTSTRAP_MESSAGE);
+      developerMessageService.sendBootstrapMessage(developerState);
+      completeStep(journal, BootstrapStep.BOOTSTRAP_MESSAGE, developerEmail,
+          new BootstrapJournalEntry());
+      progress.completed(BootstrapStep.BOOTSTRAP_MESSAGE);
+    }
 
     LOG.info("Bootstraped user " + developerState.getUserDetail().getUserAttributes().getUserName() + ".");
 
@@ -113,8 +182,20 @@ public class DeveloperBootstrapService {
   }
 
   public DeveloperBootstrapInfo bootstrapDevelopers(DeveloperSignUpForm signUpForm) throws ApiException {
+    return bootstrapDevelopers(signUpForm, BootstrapProgress.NONE);
+  }
+
+  /**
+   * Bootstraps a team in a shared team room, reporting each step to the given progress.
+   * @param signUpForm the sign up form of the team
+   * @param progress receives the bootstrap steps
+   * @return bootstrap info
+   */
+  public DeveloperBootstrapInfo bootstrapDevelopers(DeveloperSignUpForm signUpForm,
+      BootstrapProgress progress) throws ApiException {
     DeveloperBootstrapState developerState = getDeveloperState(signUpForm.getCreator());
-    bootstrap(developerState);
+    bootstrap(developerState, progress);
+    BootstrapJournal journal = getJournal(developerState);
 
     UserIdList userIdList = new UserIdList();
     userIdList.add(developerState.getUserDetail().getUserSystemInfo().getId());
@@ -124,28 +205,60 @@ public class DeveloperBootstrapService {
     }
 
     if(StringUtils.isNotBlank(signUpForm.getAppId())) {
-      developerState = getDeveloperState(signUpForm.getCreator());
-      developerRegistrationService.installApp(developerState);
-      for (Developer teamMember : signUpForm.getTeam()) {
-        developerState = getDeveloperState(teamMember);
-        developerRegistrationService.installApp(developerState);
+      progress.started(BootstrapStep.APP_INSTALL);
+      List<Developer> developers = new ArrayList<>();
+      developers.add(signUpForm.getCreator());
+      developers.addAll(signUpForm.getTeam());
+      for (Developer developer : developers) {
+        if (journal.getEntry(BootstrapStep.APP_INSTALL, developer.getEmail()) == null) {
+          developerRegistrationService.installApp(getDeveloperState(developer));
+          completeStep(journal, BootstrapStep.APP_INSTALL, developer.getEmail(),
+              new BootstrapJournalEntry());
+        }
       }
+      progress.completed(BootstrapStep.APP_INSTALL);
     }
 
     developerState = getDeveloperState(signUpForm.getCreator());
-    V2RoomDetail roomDetail = developerMessageService.createDeveloperRoom(
-        "Team Development Room (" + developerState.getUserDetail().getUserAttributes().getUserName()
-            + ")", userIdList);
     Stream stream = new Stream();
-    stream.setId(roomDetail.getRoomSystemInfo().getId());
+    BootstrapJournalEntry roomEntry = journal.getEntry(BootstrapStep.TEAM_ROOM);
+    if(roomEntry == null) {
+      progress.started(BootstrapStep.TEAM_ROOM);
+      V2RoomDetail roomDetail = developerMessageService.createDeveloperRoom(
+          "Team Development Room (" + developerState.getUserDetail().getUserAttributes().getUserName()
+              + ")", userIdList);
+      stream.setId(roomDetail.getRoomSystemInfo().getId());
+      completeStep(journal, BootstrapStep.TEAM_ROOM, null,
+          new BootstrapJournalEntry().result(BootstrapJournalEntry.ROOM_ID, stream.getId()));
+      progress.completed(BootstrapStep.TEAM_ROOM);
+    } else {
+      stream.setId(roomEntry.getResult(BootstrapJournalEntry.ROOM_ID));
+    }
     developerState.setDeveloperRoom(stream);
     for(Developer teamMember : developerState.getTeamMembers()) {
       developerState = getDeveloperState(teamMember);
       developerState.setDeveloperRoom(stream);
     }
 
-    developerCertService.uploadCerts(developerState);
-    developerMessageService.sendBootstrapMessage(developerState);
+    //The certs and message go to the team room, so they are journaled once for the team
+    BootstrapJournalEntry uploadEntry = journal.getEntry(BootstrapStep.CERT_UPLOAD);
+    if(uploadEntry == null) {
+      progress.started(BootstrapStep.CERT_UPLOAD);
+      developerCertService.uploadCerts(developerState);
+      uploadEntry = new BootstrapJournalEntry();
+      uploadEntry.setAttachmentInfo(developerState.getCertAttachmentInfo());
+      completeStep(journal, BootstrapStep.CERT_UPLOAD, null, uploadEntry);
+      progress.completed(BootstrapStep.CERT_UPLOAD);
+    } else {
+      developerState.setCertAttachmentInfo(uploadEntry.getAttachmentInfo());
+    }
+
+    if(journal.getEntry(BootstrapStep.BOOTSTRAP_MESSAGE) == null) {
+      progress.started(BootstrapStep.BOOTSTRAP_MESSAGE);
+      developerMessageService.sendBootstrapMessage(developerState);
+      completeStep(journal, BootstrapStep.BOOTSTRAP_MESSAGE, null, new BootstrapJournalEntry());
+      progress.completed(BootstrapStep.BOOTSTRAP_MESSAGE);
+    }
 
     return developerState.getBootstrapInfo();
   }
@@ -158,7 +271,18 @@ public class DeveloperBootstrapService {
    */
   public void welcomeDeveloper(DeveloperSignUpForm signUpForm) throws ApiException {
     validateSignUpForm(signUpForm);
+    welcomeValidatedDeveloper(signUpForm, BootstrapProgress.NONE);
+  }
 
+  /**
+   * Creates the partner symphony users and sends the welcome emails and messages,
+   * for a sign up form that was already validated.
+   * @param signUpForm the validated partner sign up form
+   * @param progress receives the welcome step
+   */
+  public void welcomeValidatedDeveloper(DeveloperSignUpForm signUpForm, BootstrapProgress progress)
+      throws ApiException {
+    progress.started(BootstrapStep.WELCOME);
     if(StringUtils.isBlank(signUpForm.getAppId())) {
       signUpForm.setAppId(RandomStringUtils.randomAlphanumeric(40).toUpperCase());
     }
@@ -168,6 +292,7 @@ public class DeveloperBootstrapService {
     developerSet.addAll(signUpForm.getTeam());
     Set<DeveloperBootstrapState> bootstrapStates = getInitialBootstrapStates(developerSet, signUpForm);
     welcome(bootstrapStates);
+    progress.completed(BootstrapStep.WELCOME);
   }
 
   /**
@@ -216,73 +341,490 @@ public class DeveloperBootstrapService {
     return null;
   }
 
-  private void bootstrap(DeveloperBootstrapState developerState) throws ApiException {
+  /**
+   * Provisions the bot and, if there is one, the app.
+   * The bot and app do not depend on each other, so the app is provisioned on the bootstrap
+   * pool while the bot is provisioned on the calling thread.
+   * Steps in the team's journal are skipped, restoring what they created instead.
+   * @param developerState the state of the developer bootstrapping
+   * @param progress receives the bootstrap steps
+   */
+  private void bootstrap(DeveloperBootstrapState developerState, BootstrapProgress progress)
+      throws ApiException {
     DeveloperSignUpForm signUpForm = developerState.getDeveloperSignUpForm();
+    BootstrapJournal journal = getJournal(developerState);
+    if(journal.getCompletedSteps().isEmpty() && developerState.getBootstrapInfo() != null
+        && developerState.getBootstrapInfo().getBotUsername() != null) {
+      //Bootstrapped before bootstraps were journaled
+      return;
+    }
+
     if(developerState.getBootstrapInfo() == null) {
-      DeveloperBootstrapInfo developerBootstrapInfo = new DeveloperBootstrapInfo();
-      developerState.setBootstrapInfo(developerBootstrapInfo);
-
-      //Register bot cert
-      String botUsername = developerRegistrationService.getDefaultBotUsername();
-      developerCertService.generateAndRegisterCert(botUsername, "", developerState);
-      developerBootstrapInfo.setBotUsername(botUsername);
-      developerBootstrapInfo.setBotEmail(signUpForm.getBotEmail());
-      //Register bot
-      UserDetail botDetail = developerRegistrationService.registerBot(developerState);
-      //Save bot detail for all team members
-      for(Developer teamMember: developerState.getTeamMembers()){
-        DeveloperBootstrapState teamMemberState = getDeveloperState(teamMember);
+      developerState.setBootstrapInfo(new DeveloperBootstrapInfo());
+    }
+    DeveloperBootstrapInfo developerBootstrapInfo = developerState.getBootstrapInfo();
+
+    Future<ApplicationDetail> appBranch = null;
+    if (StringUtils.isNotBlank(signUpForm.getAppId())) {
+      appBranch = getBootstrapExecutor().submit(() -> bootstrapApp(developerState, journal, progress));
+    }
+
+    UserDetail botDetail;
+    try {
+      botDetail = bootstrapBot(developerState, journal, progress);
+    } catch (ApiException | RuntimeException e) {
+      //Wait for the app branch, so nothing is still registering once the failure is reported
+      if (appBranch != null) {
+        try {
+          joinBranch(appBranch);
+        } catch (Exception appException) {
+          e.addSuppressed(appException);
+        }
+      }
+      throw e;
+    }
+
+    ApplicationDetail applicationDetail = null;
+    if (appBranch != null) {
+      applicationDetail = joinBranch(appBranch);
+    }
+
+    //Save bot, app and bootstrap info for team members (So they know app and bot were already created)
+    List<DeveloperBootstrapState> teamStates = new ArrayList<>();
+    teamStates.add(developerState);
+    for(Developer teamMember: developerState.getTeamMembers()){
+      teamStates.add(getDeveloperState(teamMember));
+    }
+    for(DeveloperBootstrapState teamMemberState : teamStates) {
+      //Skipped steps have no detail to share, team members keep what they had
+      if (botDetail != null) {
         teamMemberState.setBotDetail(botDetail);
       }
-      developerState.setBotDetail(botDetail);
-
-      if (StringUtils.isNotBlank(signUpForm.getAppId())) {
-        //Register app cert
-        developerCertService.generateAndRegisterCert(signUpForm.getAppId(), "", developerState);
-        developerBootstrapInfo.setAppId(signUpForm.getAppId());
-        developerBootstrapInfo.setAppName(signUpForm.getAppName());
-
-        //Register app
-        ApplicationDetail applicationDetail = developerRegistrationService.registerApp(developerState);
-        //Save app detail for all team members
-        for(Developer teamMember: developerState.getTeamMembers()){
-          DeveloperBootstrapState teamMemberState = getDeveloperState(teamMember);
-          teamMemberState.setApplicationDetail(applicationDetail);
-        }
-        developerState.setApplicationDetail(applicationDetail);
+      if (applicationDetail != null) {
+        teamMemberState.setApplicationDetail(applicationDetail);
+      }
+      teamMemberState.setBootstrapInfo(developerBootstrapInfo);
+    }
+  }
+
+  /**
+   * Registers the bot cert and creates the bot user.
+   * @param developerState the state of the developer bootstrapping
+   * @param journal the team's journal
+   * @param progress receives the bootstrap steps
+   * @return the bot user. If the bot was created before, the bot detail already in the state,
+   * or else the bot user looked up by the user id in the journal (such as after a restart)
+   */
+  private UserDetail bootstrapBot(DeveloperBootstrapState developerState, BootstrapJournal journal,
+      BootstrapProgress progress) throws ApiException {
+    DeveloperSignUpForm signUpForm = developerState.getDeveloperSignUpForm();
+    DeveloperBootstrapInfo developerBootstrapInfo = developerState.getBootstrapInfo();
+
+    //Register bot cert
+    String botUsername;
+    BootstrapJournalEntry certEntry = journal.getEntry(BootstrapStep.BOT_CERT);
+    if (certEntry == null) {
+      progress.started(BootstrapStep.BOT_CERT);
+      botUsername = developerRegistrationService.getDefaultBotUsername();
+      CompanyCert botCert;
+      if (StringUtils.isNotBlank(signUpForm.getBotCsr())) {
+        botCert = developerCertService.signAndRegisterCsr(botUsername, signUpForm.getBotCsr(),
+            developerState);
+      } else {
+        botCert = developerCertService.generateAndRegisterCert(botUsername, "", developerState);
+      }
+      certEntry = new BootstrapJournalEntry()
+          .result(BootstrapJournalEntry.BOT_USERNAME, botUsername)
+          .result(BootstrapJournalEntry.CERT_PEM, botCert.getPem());
+      completeStep(journal, BootstrapStep.BOT_CERT, null, certEntry);
+      progress.completed(BootstrapStep.BOT_CERT);
+    } else {
+      botUsername = certEntry.getResult(BootstrapJournalEntry.BOT_USERNAME);
+      restoreCert(developerState, botUsername, certEntry);
+    }
+    if (StringUtils.isNotBlank(signUpForm.getBotCsr())) {
+      developerBootstrapInfo.setBotCertificate(certEntry.getResult(BootstrapJournalEntry.CERT_PEM));
+    }
+    developerBootstrapInfo.setBotUsername(botUsername);
+    developerBootstrapInfo.setBotEmail(signUpForm.getBotEmail());
+
+    //Register bot
+    BootstrapJournalEntry botEntry = journal.getEntry(BootstrapStep.BOT_USER);
+    if (botEntry != null) {
+      String botUserId = botEntry.getResult(BootstrapJournalEntry.BOT_USER_ID);
+      if (developerState.getBotDetail() != null || botUserId == null) {
+        return developerState.getBotDetail();
+      }
+      return developerRegistrationService.getBot(Long.valueOf(botUserId));
+    }
+    progress.started(BootstrapStep.BOT_USER);
+    UserDetail botDetail = developerRegistrationService.registerBot(developerState);
+    completeStep(journal, BootstrapStep.BOT_USER, null, new BootstrapJournalEntry()
+        .result(BootstrapJournalEntry.BOT_USER_ID, String.valueOf(botDetail.getUserSystemInfo().getId())));
+    progress.completed(BootstrapStep.BOT_USER);
+    return botDetail;
+  }
+
+  /**
+   * Registers the app cert and creates the app.
+   * @param developerState the state of the developer bootstrapping
+   * @param journal the team's journal
+   * @param progress receives the bootstrap steps
+   * @return the app, or the app detail already in the state if the app was created before
+   */
+  private ApplicationDetail bootstrapApp(DeveloperBootstrapState developerState,
+      BootstrapJournal journal, BootstrapProgress progress) throws ApiException {
+    DeveloperSignUpForm signUpForm = developerState.getDeveloperSignUpForm();
+    DeveloperBootstrapInfo developerBootstrapInfo = developerState.getBootstrapInfo();
+
+    //Register app cert
+    BootstrapJournalEntry certEntry = journal.getEntry(BootstrapStep.APP_CERT);
+    if (certEntry == null) {
+      progress.started(BootstrapStep.APP_CERT);
+      CompanyCert appCert;
+      if (StringUtils.isNotBlank(signUpForm.getAppCsr())) {
+        appCert = developerCertService.signAndRegisterCsr(signUpForm.getAppId(),
+            signUpForm.getAppCsr(), developerState);
+      } else {
+        appCert = developerCertService.generateAndRegisterCert(signUpForm.getAppId(), "",
+            developerState);
+      }
+      certEntry = new BootstrapJournalEntry()
+          .result(BootstrapJournalEntry.APP_ID, signUpForm.getAppId())
+          .result(BootstrapJournalEntry.CERT_PEM, appCert.getPem());
+      completeStep(journal, BootstrapStep.APP_CERT, null, certEntry);
+      progress.completed(BootstrapStep.APP_CERT);
+    } else {
+      restoreCert(developerState, signUpForm.getAppId(), certEntry);
+    }
+    if (StringUtils.isNotBlank(signUpForm.getAppCsr())) {
+      developerBootstrapInfo.setAppCertificate(certEntry.getResult(BootstrapJournalEntry.CERT_PEM));
+    }
+    developerBootstrapInfo.setAppId(signUpForm.getAppId());
+    developerBootstrapInfo.setAppName(signUpForm.getAppName());
+
+    //Register app
+    if (journal.getEntry(BootstrapStep.APP) != null) {
+      return developerState.getApplicationDetail();
+    }
+    progress.started(BootstrapStep.APP);
+    ApplicationDetail applicationDetail = developerRegistrationService.registerApp(developerState);
+    completeStep(journal, BootstrapStep.APP, null, new BootstrapJournalEntry()
+        .result(BootstrapJournalEntry.APP_ID, signUpForm.getAppId()));
+    progress.completed(BootstrapStep.APP);
+    return applicationDetail;
+  }
+
+  /**
+   * Puts a cert registered by an earlier bootstrap attempt back into the state,
+   * since later steps (such as creating the app) need it.
+   * @param developerState the state of the developer bootstrapping
+   * @param commonName the name of the cert
+   * @param certEntry the journal entry of the cert step
+   */
+  private void restoreCert(DeveloperBootstrapState developerState, String commonName,
+      BootstrapJournalEntry certEntry) {
+    if (!developerState.getCompanyCertMap().containsKey(commonName)) {
+      CompanyCert companyCert = new CompanyCert();
+      companyCert.setPem(certEntry.getResult(BootstrapJournalEntry.CERT_PEM));
+      developerState.getCompanyCertMap().put(commonName, companyCert);
+    }
+  }
+
+  /**
+   * Gets the journal of the developer's team, starting one if the team has none.
+   * @param developerState the state of a developer on the team
+   * @return the journal
+   */
+  private synchronized BootstrapJournal getJournal(DeveloperBootstrapState developerState) {
+    String teamKey = developerState.getDeveloperSignUpForm().getCreator().getEmail();
+    try {
+      return journalCache.get(teamKey);
+    } catch (Exception e) {
+      BootstrapJournal journal = new BootstrapJournal(teamKey);
+      journalCache.put(teamKey, journal);
+      return journal;
+    }
+  }
+
+  /**
+   * Records a completed step, and saves the journal right away.
+   * @param journal the team's journal
+   * @param step the completed step
+   * @param developerEmail the developer the step was done for, or null for team wide steps
+   * @param entry what the step created
+   */
+  private void completeStep(BootstrapJournal journal, BootstrapStep step, String developerEmail,
+      BootstrapJournalEntry entry) {
+    //The bot and app branches complete steps at the same time, and share the journal file
+    synchronized (journal) {
+      if (developerEmail == null) {
+        journal.complete(step, entry);
+      } else {
+        journal.complete(step, developerEmail, entry);
       }
+      journalCache.put(journal.getTeamKey(), journal);
+    }
+  }
 
-      //Set bootstrap info for team members (So they know app and bot were already created)
-      for(Developer teamMember: developerState.getTeamMembers()){
-        DeveloperBootstrapState teamMemberState = getDeveloperState(teamMember);
-        teamMemberState.setBootstrapInfo(developerBootstrapInfo);
+  /**
+   * Waits for a bootstrap branch, rethrowing whatever it failed with.
+   * @param branch the branch running on the bootstrap or welcome pool
+   * @return the branch result
+   */
+  private <T> T joinBranch(Future<T> branch) throws ApiException {
+    try {
+      return branch.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      branch.cancel(true);
+      throw new InternalServerErrorException(BotConstants.INTERNAL_ERROR);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof ApiException) {
+        throw (ApiException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
       }
+      LOG.error("Bootstrap branch failed: ", cause);
+      throw new InternalServerErrorException(BotConstants.INTERNAL_ERROR);
+    }
+  }
+
+  /**
+   * Gets the bootstrap pool, creating it on first use.
+   * When every thread is busy, branches run on the thread that submitted them instead of queueing.
+   * @return the bootstrap pool
+   */
+  private static synchronized ExecutorService getBootstrapExecutor() {
+    if (bootstrapExecutor == null) {
+      bootstrapExecutor = createExecutor("bootstrap-",
+          Integer.parseInt(System.getProperty(BotConfig.BOOTSTRAP_THREADS)));
+    }
+    return bootstrapExecutor;
+  }
+
+  /**
+   * Gets the welcome pool, creating it on first use.
+   * When every thread is busy, developers are welcomed on the thread that submitted them.
+   * @return the welcome pool
+   */
+  private static synchronized ExecutorService getWelcomeExecutor() {
+    if (welcomeExecutor == null) {
+      welcomeExecutor = createExecutor("welcome-",
+          Integer.parseInt(System.getProperty(BotConfig.WELCOME_THREADS)));
+    }
+    return welcomeExecutor;
+  }
+
+  /**
+   * Gets the validation pool, creating it on first use.
+   * Unlike the other pools, lookups queue when every thread is busy,
+   * so a validation never waits past its deadline on a lookup it runs itself.
+   * @return the validation pool
+   */
+  private static synchronized ExecutorService getValidationExecutor() {
+    if (validationExecutor == null) {
+      int poolSize = Math.max(Integer.parseInt(System.getProperty(BotConfig.VALIDATION_THREADS)), 1);
+      AtomicInteger threadCount = new AtomicInteger();
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "validation-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+      executor.allowCoreThreadTimeOut(true);
+      validationExecutor = executor;
     }
+    return validationExecutor;
+  }
+
+  /**
+   * Creates a bounded pool that runs tasks on the submitting thread instead of queueing them.
+   * @param namePrefix the thread name prefix
+   * @param threads the number of threads
+   * @return the pool
+   */
+  private static ExecutorService createExecutor(String namePrefix, int threads) {
+    int poolSize = Math.max(threads, 1);
+    AtomicInteger threadCount = new AtomicInteger();
+    return new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), runnable -> {
+          Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
   }
 
   /**
    * Validates sign up form.
    * @param signUpForm the sign up form to validate
    */
-  private void validateSignUpForm(DeveloperSignUpForm signUpForm) throws ApiException {
-    if (StringUtils.isBlank(signUpForm.getCreator().getFirstName()) ||
+  public void validateSignUpForm(DeveloperSignUpForm signUpForm) throws ApiException {
+    validateSignUpFormFields(signUpForm);
+
+    if((StringUtils.isNotBlank(signUpForm.getAppId()) && reservedContent.contains(signUpForm.getAppId())) ||
+        reservedContent.contains(signUpForm.getBotEmail().replace(" ", ""))){
+      throw new BadRequestException(BotConstants.BOT_APP_EXISTS);
+    }
+
+    validateSignUpFormOnPod(signUpForm);
+  }
+
+  /**
+   * Checks that the developers, bot and app of a sign up form do not exist on the pod yet.
+   * The emails of the team and bot are looked up in one batch, at the same time as the app
+   * on the validation pool. The first lookup that finds something fails the validation right away,
+   * and the lookups still running are cancelled.
+   * @param signUpForm the sign up form, with valid fields
+   * @throws ServiceUnavailableException if the lookups did not finish within the validation timeout
+   */
+  private void validateSignUpFormOnPod(DeveloperSignUpForm signUpForm) throws ApiException {
+    CompletionService<String> completionService =
+        new ExecutorCompletionService<>(getValidationExecutor());
+    List<Future<String>> lookups = new ArrayList<>();
+    Set<String> developerEmails = getDeveloperEmails(signUpForm);
+    //Normalized like the reserved content check and the bulk path, so both agree on a form
+    String botEmail = signUpForm.getBotEmail().replace(" ", "");
+    Set<String> emails = new HashSet<>(developerEmails);
+    emails.add(botEmail);
+    lookups.add(completionService.submit(() -> {
+      Set<String> existingEmails = developerRegistrationService.getExistingEmails(emails);
+      if(!Collections.disjoint(developerEmails, existingEmails)) {
+        return BotConstants.DEVELOPER_EXISTS;
+      }
+      return existingEmails.contains(botEmail) ? BotConstants.BOT_APP_EXISTS : null;
+    }));
+    String appId = signUpForm.getAppId();
+    if(StringUtils.isNotBlank(appId)) {
+      lookups.add(completionService.submit(() ->
+          developerRegistrationService.appExists(appId) ? BotConstants.BOT_APP_EXISTS : null));
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(
+        Long.parseLong(System.getProperty(BotConfig.VALIDATION_TIMEOUT_MS)));
+    try {
+      for(int done = 0; done < lookups.size(); done++) {
+        Future<String> lookup = completionService.poll(deadline - System.nanoTime(),
+            TimeUnit.NANOSECONDS);
+        if(lookup == null) {
+          LOG.warn("Sign up form validation for " + signUpForm.getCreator().getEmail() + " timed out.");
+          throw new ServiceUnavailableException(BotConstants.VALIDATION_TIMEOUT);
+        }
+        String failure = joinBranch(lookup);
+        if(failure != null) {
+          throw new BadRequestException(failure);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InternalServerErrorException(BotConstants.INTERNAL_ERROR);
+    } finally {
+      for(Future<String> lookup : lookups) {
+        lookup.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Validates a batch of sign up forms.
+   * The developers, bots and app ids of the whole batch are looked up once,
+   * instead of once per sign up form.
+   * A developer, bot or app can also only be used by one sign up form in the batch.
+   * @param signUpForms the sign up forms to validate
+   * @return why each invalid sign up form is invalid, by its position in the batch
+   */
+  public Map<Integer, BadRequestException> validateSignUpForms(List<DeveloperSignUpForm> signUpForms)
+      throws ApiException {
+    Map<Integer, BadRequestException> failures = new HashMap<>();
+    Set<String> emails = new HashSet<>();
+    boolean hasAppIds = false;
+    for(int index = 0; index < signUpForms.size(); index++) {
+      DeveloperSignUpForm signUpForm = signUpForms.get(index);
+      try {
+        validateSignUpFormFields(signUpForm);
+      } catch (BadRequestException e) {
+        failures.put(index, e);
+        continue;
+      }
+      emails.addAll(getDeveloperEmails(signUpForm));
+      emails.add(signUpForm.getBotEmail().replace(" ", ""));
+      hasAppIds |= StringUtils.isNotBlank(signUpForm.getAppId());
+    }
+
+    Set<String> existingEmails = developerRegistrationService.getExistingEmails(emails);
+    Set<String> podAppIds = hasAppIds ? developerRegistrationService.getPodAppIds()
+        : Collections.<String>emptySet();
+
+    Set<String> batchContent = new HashSet<>();
+    for(int index = 0; index < signUpForms.size(); index++) {
+      if(failures.containsKey(index)) {
+        continue;
+      }
+
+      DeveloperSignUpForm signUpForm = signUpForms.get(index);
+      Set<String> developerEmails = getDeveloperEmails(signUpForm);
+      String botEmail = signUpForm.getBotEmail().replace(" ", "");
+      String appId = signUpForm.getAppId();
+      if(!Collections.disjoint(developerEmails, existingEmails)) {
+        failures.put(index, new BadRequestException(BotConstants.DEVELOPER_EXISTS));
+      } else if(existingEmails.contains(botEmail) || reservedContent.contains(botEmail) ||
+          (StringUtils.isNotBlank(appId) && (podAppIds.contains(appId) || reservedContent.contains(appId)))) {
+        failures.put(index, new BadRequestException(BotConstants.BOT_APP_EXISTS));
+      } else if(!Collections.disjoint(developerEmails, batchContent)) {
+        failures.put(index, new BadRequestException(BotConstants.DUPLICATE_DEVELOPER));
+      } else if(batchContent.contains(botEmail) ||
+          (StringUtils.isNotBlank(appId) && batchContent.contains(appId))) {
+        failures.put(index, new BadRequestException(BotConstants.BOT_APP_EXISTS));
+      } else {
+        batchContent.addAll(developerEmails);
+        batchContent.add(botEmail);
+        if(StringUtils.isNotBlank(appId)) {
+          batchContent.add(appId);
+        }
+      }
+    }
+
+    return failures;
+  }
+
+  /**
+   * Gets the emails of the creator and team in a sign up form.
+   * @param signUpForm the sign up form
+   * @return the developer emails
+   */
+  private Set<String> getDeveloperEmails(DeveloperSignUpForm signUpForm) {
+    Set<String> developerEmails = new HashSet<>();
+    developerEmails.add(signUpForm.getCreator().getEmail().replace(" ", ""));
+    for(Developer teamMember: signUpForm.getTeam()) {
+      developerEmails.add(teamMember.getEmail().replace(" ", ""));
+    }
+    return developerEmails;
+  }
+
+  /**
+   * Validates the fields of a sign up form, without looking anything up on the pod.
+   * @param signUpForm the sign up form to validate
+   */
+  private void validateSignUpFormFields(DeveloperSignUpForm signUpForm) {
+    //Bulk uploads are not checked against the API schema, so the creator and team may be missing
+    if (signUpForm.getCreator() == null || signUpForm.getTeam() == null ||
+        StringUtils.isBlank(signUpForm.getCreator().getFirstName()) ||
         StringUtils.isBlank(signUpForm.getCreator().getLastName()) ||
         StringUtils.isBlank(signUpForm.getCreator().getEmail())) {
       throw new BadRequestException(BotConstants.DEVELOPER_REQUIRED);
     }
     for(Developer teamMember: signUpForm.getTeam()) {
-      if (StringUtils.isBlank(teamMember.getFirstName()) ||
+      if (teamMember == null || StringUtils.isBlank(teamMember.getFirstName()) ||
           StringUtils.isBlank(teamMember.getLastName()) ||
           StringUtils.isBlank(teamMember.getEmail())) {
         throw new BadRequestException(BotConstants.DEVELOPER_REQUIRED);
       }
     }
 
-    Set<String> developerEmails = new HashSet<>();
-    developerEmails.add(signUpForm.getCreator().getEmail().replace(" ", ""));
-    for(Developer teamMember: signUpForm.getTeam()) {
-      developerEmails.add(teamMember.getEmail().replace(" ", ""));
-    }
+    Set<String> developerEmails = getDeveloperEmails(signUpForm);
     for(String developerEmail : developerEmails) {
       if(developerEmail.equals(signUpForm.getBotEmail())) {
         throw new BadRequestException(BotConstants.BOT_DEVELOPER_EMAIL_SAME);
@@ -295,16 +837,14 @@ public class DeveloperBootstrapService {
     if (StringUtils.isBlank(signUpForm.getBotName())) {
       throw new BadRequestException(BotConstants.BOT_NAME_REQUIRED);
     }
-    if(developerEmails.size() != signUpForm.getTeam().size() + 1) {
-      throw new BadRequestException(BotConstants.DUPLICATE_DEVELOPER);
+    if (StringUtils.isNotBlank(signUpForm.getBotCsr())) {
+      developerCertService.verifyCsr(signUpForm.getBotCsr());
     }
-    if(developerRegistrationService.oneDeveloperExists(signUpForm)){
-      throw new BadRequestException(BotConstants.DEVELOPER_EXISTS);
+    if (StringUtils.isNotBlank(signUpForm.getAppCsr())) {
+      developerCertService.verifyCsr(signUpForm.getAppCsr());
     }
-    if(developerRegistrationService.botOrAppExist(signUpForm) ||
-        (StringUtils.isNotBlank(signUpForm.getAppId()) && reservedContent.contains(signUpForm.getAppId())) ||
-        reservedContent.contains(signUpForm.getBotEmail().replace(" ", ""))){
-      throw new BadRequestException(BotConstants.BOT_APP_EXISTS);
+    if(developerEmails.size() != signUpForm.getTeam().size() + 1) {
+      throw new BadRequestException(BotConstants.DUPLICATE_DEVELOPER);
     }
 
     if(signUpFormContainsApp(signUpForm)) {
@@ -363,7 +903,7 @@ public class DeveloperBootstrapService {
       teamMembers.remove(developer);
       developerState.setTeamMembers(teamMembers);
 
-      developerState.setCompanyCertMap(new HashMap<>());
+      developerState.setCompanyCertMap(new ConcurrentHashMap<>());
 
       developerStates.add(developerState);
     }
@@ -371,30 +911,77 @@ public class DeveloperBootstrapService {
     return developerStates;
   }
 
+  /**
+   * Welcomes each developer on the welcome pool, so a team is welcomed in about the time
+   * of its slowest member.
+   * Every developer is attempted, and failures are rethrown once all of them are done.
+   * @param bootstrapStates the states of the developers to welcome
+   */
   private void welcome(Set<DeveloperBootstrapState> bootstrapStates) throws ApiException {
+    Set<String> emails = new HashSet<>();
     for(DeveloperBootstrapState developerState : bootstrapStates) {
-      developerStateCache.put(developerState.getDeveloper(), developerState);
-
-      String randomPassword = UUID.randomUUID().toString().replace("-", "");
-      int randomBegin = (int)(Math.random() * (randomPassword.length() - 3));
-      int randomEnd = ThreadLocalRandom.current().nextInt(randomBegin, randomPassword.length());
-      randomPassword = randomPassword.replace(randomPassword.substring(randomBegin, randomEnd),
-          randomPassword.substring(randomBegin, randomEnd).toUpperCase());
-
-      if(!developerRegistrationService.developerExists(developerState.getDeveloper())) {
-        developerRegistrationService.registerDeveloperUser(developerState, randomPassword);
-        developerEmailService.sendWelcomeEmail(developerState, randomPassword);
-        developerMessageService.sendDirectionalMessage(developerState);
-      } else {
-        developerRegistrationService.setDeveloperUserDetail(developerState);
-        developerMessageService.setDeveloperStream(developerState);
+      emails.add(developerState.getDeveloper().getEmail());
+    }
+    Map<String, UserV2> existingUsers = developerRegistrationService.getUsers(emails);
+
+    Map<DeveloperBootstrapState, Future<Void>> welcomes = new LinkedHashMap<>();
+    for(DeveloperBootstrapState developerState : bootstrapStates) {
+      UserV2 existingUser = existingUsers.get(developerState.getDeveloper().getEmail());
+      welcomes.put(developerState, getWelcomeExecutor().submit(() -> {
+        welcomeTeamMember(developerState, existingUser);
+        return null;
+      }));
+    }
+
+    Exception failure = null;
+    for(Map.Entry<DeveloperBootstrapState, Future<Void>> welcome : welcomes.entrySet()) {
+      try {
+        joinBranch(welcome.getValue());
+      } catch (ApiException | RuntimeException e) {
+        LOG.error("Could not welcome developer " + welcome.getKey().getDeveloper().getEmail() + ": ", e);
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
       }
+    }
+
+    if (failure instanceof ApiException) {
+      throw (ApiException) failure;
+    } else if (failure != null) {
+      throw (RuntimeException) failure;
+    }
+  }
+
+  /**
+   * Creates the developer user if needed, and sends the welcome email and message.
+   * @param developerState the state of the developer to welcome
+   * @param existingUser the developer's user, or null if the developer is not a user yet
+   */
+  private void welcomeTeamMember(DeveloperBootstrapState developerState, UserV2 existingUser)
+      throws ApiException {
+    developerStateCache.put(developerState.getDeveloper(), developerState);
 
-      reservedContent.add(developerState.getDeveloperSignUpForm().getAppId());
-      reservedContent.add(developerState.getDeveloperSignUpForm().getBotEmail().replace(" ", ""));
+    String randomPassword = UUID.randomUUID().toString().replace("-", "");
+    int randomBegin = (int)(Math.random() * (randomPassword.length() - 3));
+    int randomEnd = ThreadLocalRandom.current().nextInt(randomBegin, randomPassword.length());
+    randomPassword = randomPassword.replace(randomPassword.substring(randomBegin, randomEnd),
+        randomPassword.substring(randomBegin, randomEnd).toUpperCase());
 
-      LOG.info("Welcomed developer " + developerState.getUserDetail().getUserAttributes().getUserName() + ".");
+    if(existingUser == null) {
+      developerRegistrationService.registerDeveloperUser(developerState, randomPassword);
+      developerEmailService.sendWelcomeEmail(developerState, randomPassword);
+      developerMessageService.sendDirectionalMessage(developerState);
+    } else {
+      developerRegistrationService.setDeveloperUserDetail(developerState, existingUser);
+      developerMessageService.setDeveloperStream(developerState);
     }
+
+    reservedContent.add(developerState.getDeveloperSignUpForm().getAppId());
+    reservedContent.add(developerState.getDeveloperSignUpForm().getBotEmail().replace(" ", ""));
+
+    LOG.info("Welcomed developer " + developerState.getUserDetail().getUserAttributes().getUserName() + ".");
   }
 
   private void validateDomain(String url, String domain) throws MalformedURLException {
@@ -25,57 +25,85 @@ package com.symphony.adminbot.bootstrap.service;
 import com.symphony.adminbot.bootstrap.model.DeveloperBootstrapState;
 import com.symphony.adminbot.commons.BotConstants;
 import com.symphony.adminbot.config.BotConfig;
+import com.symphony.adminbot.util.crypto.IssuingCa;
+import com.symphony.adminbot.util.crypto.KeyAlgorithm;
+import com.symphony.adminbot.util.crypto.KeyPairPool;
 import com.symphony.adminbot.util.file.FileUtil;
+import com.symphony.adminbot.util.pem.PemBlock;
+import com.symphony.adminbot.util.pem.PemReader;
 import com.symphony.api.adminbot.model.Developer;
+import com.symphony.api.adminbot.model.DeveloperSignUpForm;
+import com.symphony.api.agent.model.AttachmentInfo;
 import com.symphony.api.clients.AttachmentsClient;
 import com.symphony.api.clients.SecurityClient;
 import com.symphony.api.pod.client.ApiException;
 import com.symphony.api.pod.model.CompanyCert;
 import com.symphony.api.pod.model.CompanyCertAttributes;
-import com.symphony.api.pod.model.CompanyCertDetail;
 import com.symphony.api.pod.model.CompanyCertStatus;
 import com.symphony.api.pod.model.CompanyCertType;
 import com.symphony.api.pod.model.Stream;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import org.apache.commons.lang.StringUtils;
-import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.sec.SECObjectIdentifiers;
 import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cert.X509v3CertificateBuilder;
 import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
-import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
-import org.bouncycastle.crypto.util.PrivateKeyFactory;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
 import org.bouncycastle.operator.ContentSigner;
-import org.bouncycastle.operator.DefaultDigestAlgorithmIdentifierFinder;
-import org.bouncycastle.operator.DefaultSignatureAlgorithmIdentifierFinder;
-import org.bouncycastle.operator.bc.BcRSAContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.StringWriter;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.Key;
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
 import java.security.KeyStore;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.security.auth.x500.X500Principal;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.InternalServerErrorException;
 
 /**
@@ -83,6 +111,44 @@ import javax.ws.rs.InternalServerErrorException;
  */
 public class DeveloperCertService {
   private static final Logger LOG = LoggerFactory.getLogger(DeveloperCertService.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  //Shared by all admin bot sessions
+  private static KeyPairPool keyPairPool;
+  //Signs certs requested with a CSR when there is no issuing CA, saved in the cert directory
+  private static KeyPair csrIssuerKeys;
+  private static final SecureRandom SERIAL_RANDOM = new SecureRandom();
+  //Named curves accepted for EC keys in a CSR (P-256, P-384 and P-521)
+  private static final Set<ASN1Encodable> CSR_EC_CURVES = ImmutableSet.<ASN1Encodable>of(
+      SECObjectIdentifiers.secp256r1,
+      SECObjectIdentifiers.secp384r1,
+      SECObjectIdentifiers.secp521r1);
+  //Issues all developer certs when configured, so only the CA is registered on the pod
+  private static IssuingCa issuingCa;
+  private static boolean issuingCaLoaded;
+  //Registering calls the pod, so it has its own lock instead of blocking the class monitor
+  private static final AtomicBoolean ISSUING_CA_REGISTERED = new AtomicBoolean();
+  private static final Object ISSUING_CA_REGISTER_LOCK = new Object();
+
+  //Generated p12 files by cert name, so team members bootstrapped from other sessions get them too
+  private static final Cache<String, byte[]> GENERATED_CERTS = CacheBuilder.newBuilder()
+      .maximumSize(10000)
+      .expireAfterWrite(BotConstants.EXPIRE_TIME_DAYS, TimeUnit.DAYS)
+      .build();
+  //Zipped cert bundles by content hash, and their uploads by content hash and stream
+  private static final Cache<String, byte[]> BUNDLES = CacheBuilder.newBuilder()
+      .maximumSize(1000)
+      .expireAfterWrite(BotConstants.EXPIRE_TIME_DAYS, TimeUnit.DAYS)
+      .build();
+  private static final Cache<String, List<AttachmentInfo>> BUNDLE_UPLOADS = CacheBuilder.newBuilder()
+      .maximumSize(1000)
+      .expireAfterWrite(BotConstants.EXPIRE_TIME_DAYS, TimeUnit.DAYS)
+      .build();
+  private static final ExecutorService CERT_WRITER = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "p12-writer");
+    thread.setDaemon(true);
+    return thread;
+  });
 
   private AttachmentsClient attachmentsClient;
   private SecurityClient securityClient;
@@ -90,85 +156,270 @@ public class DeveloperCertService {
   public DeveloperCertService(SecurityClient securityClient, AttachmentsClient attachmentsClient){
     this.securityClient = securityClient;
     this.attachmentsClient = attachmentsClient;
+    //Start filling the pool before the first bootstrap
+    getKeyPairPool();
   }
 
   /**
    * Generates cert and registers it on the pod.
+   * If an issuing CA is configured, the cert is issued by the CA instead, and only the CA is registered.
    * Adds company cert info to bootstrap state.
    * @param commonName name for the cert
    * @param password password for cert
-   * @return details about the cert
+   * @return the cert info saved to bootstrap state
    */
-  public CompanyCertDetail generateAndRegisterCert(String commonName, String password,
+  public CompanyCert generateAndRegisterCert(String commonName, String password,
       DeveloperBootstrapState bootstrapState) {
     try {
-      KeyPair keys = createKeyPair("RSA", 2048);
+      KeyPair keys = getKeyPairPool().take();
+      IssuingCa issuingCa = getIssuingCa();
 
       //Generate cert
-      X509Certificate certificate = generateCertificate(
-          commonName, keys, BotConstants.VALID_DURATION);
-      writeCert(commonName, certificate, keys,
-          System.getProperty(BotConfig.DEVELOPER_P12_DIR), password.toCharArray());
-
-      //Register new cert
-      CompanyCert companyCert = new CompanyCert();
-      companyCert.setPem(convertCertificateToPEM(certificate));
-
-      CompanyCertAttributes companyCertAttributes = new CompanyCertAttributes();
-      companyCertAttributes.setName(commonName + ".cer");
-
-      CompanyCertStatus status = new CompanyCertStatus();
-      status.setType(CompanyCertStatus.TypeEnum.TRUSTED);
-      companyCertAttributes.setStatus(status);
-
-      CompanyCertType certType = new CompanyCertType();
-      certType.setType(CompanyCertType.TypeEnum.USER);
-      companyCertAttributes.setType(certType);
-      companyCert.attributes(companyCertAttributes);
-
-      //Save cert info for later
-      CompanyCertDetail companyCertDetail = securityClient.createCert(companyCert);
-      bootstrapState.getCompanyCertMap().put(commonName, companyCert);
-
-      LOG.info("Generated and registered new cert " + commonName + ".");
-      return companyCertDetail;
-    } catch (NoSuchProviderException | IOException | CertificateException |
-        NoSuchAlgorithmException | ApiException e) {
+      X500Principal subject = new X500Principal("CN=" + commonName);
+      X509Certificate certificate;
+      Certificate[] chain;
+      if (issuingCa != null) {
+        certificate = generateCertificate(subject, keys.getPublic(),
+            issuingCa.getCertificate().getSubjectX500Principal(), issuingCa.getKeys(),
+            issuingCa.getKeyAlgorithm(), BotConstants.VALID_DURATION);
+        chain = issuingCa.chainFor(certificate);
+      } else {
+        certificate = generateCertificate(subject, keys.getPublic(), subject, keys,
+            getKeyPairPool().getKeyAlgorithm(), BotConstants.VALID_DURATION);
+        chain = new Certificate[] {certificate};
+      }
+      byte[] p12 = createP12(commonName, chain, keys, password.toCharArray());
+      GENERATED_CERTS.put(commonName, p12);
+      if (Boolean.parseBoolean(System.getProperty(BotConfig.DEVELOPER_P12_PERSIST))) {
+        writeCert(commonName, p12, System.getProperty(BotConfig.DEVELOPER_P12_DIR));
+      }
+
+      LOG.info("Generated new cert " + commonName + ".");
+      return registerCert(commonName, certificate, issuingCa, bootstrapState);
+    } catch (GeneralSecurityException | IOException | ApiException e) {
       LOG.error("Error occurred when creating welcome package: ", e);
       throw new InternalServerErrorException(BotConstants.INTERNAL_ERROR);
     }
   }
 
+  /**
+   * Signs a cert from a developer supplied certificate signing request, and registers it on the pod.
+   * No key pair is generated, and no private key leaves the developer.
+   * The subject is always set to the common name, whatever the request asks for.
+   * Adds company cert info to bootstrap state.
+   * @param commonName name for the cert
+   * @param csrPem the PEM encoded PKCS#10 request
+   * @return the cert info saved to bootstrap state
+   */
+  public CompanyCert signAndRegisterCsr(String commonName, String csrPem,
+      DeveloperBootstrapState bootstrapState) {
+    PublicKey publicKey = verifyCsr(csrPem);
+    try {
+      IssuingCa issuingCa = getIssuingCa();
+      X500Principal subject = new X500Principal("CN=" + commonName);
+      X509Certificate certificate;
+      if (issuingCa != null) {
+        certificate = generateCertificate(subject, publicKey,
+            issuingCa.getCertificate().getSubjectX500Principal(), issuingCa.getKeys(),
+            issuingCa.getKeyAlgorithm(), BotConstants.VALID_DURATION);
+      } else {
+        KeyPair issuerKeys = getCsrIssuerKeys();
+        certificate = generateCertificate(subject, publicKey,
+            new X500Principal("CN=" + BotConstants.CSR_ISSUER_NAME), issuerKeys,
+            KeyAlgorithm.forKey(issuerKeys.getPublic()), BotConstants.VALID_DURATION);
+      }
+
+      LOG.info("Signed new cert " + commonName + " from certificate signing request.");
+      return registerCert(commonName, certificate, issuingCa, bootstrapState);
+    } catch (GeneralSecurityException | IOException | ApiException e) {
+      LOG.error("Error occurred when signing certificate signing request: ", e);
+      throw new InternalServerErrorException(BotConstants.INTERNAL_ERROR);
+    }
+  }
+
+  /**
+   * Parses a certificate signing request and checks its signature,
+   * proving the requester holds the private key.
+   * Both the "CERTIFICATE REQUEST" and "NEW CERTIFICATE REQUEST" PEM labels are accepted.
+   * @param csrPem the PEM encoded PKCS#10 request
+   * @return the requested public key
+   */
+  public PublicKey verifyCsr(String csrPem) {
+    try {
+      byte[] csrBytes = csrPem.getBytes(StandardCharsets.US_ASCII);
+      PemBlock csrBlock = PemReader.readFirst(csrBytes, PemBlock.CERTIFICATE_REQUEST);
+      if (csrBlock == null) {
+        csrBlock = PemReader.readFirst(csrBytes, PemBlock.NEW_CERTIFICATE_REQUEST);
+      }
+      if (csrBlock == null) {
+        throw new BadRequestException(BotConstants.INVALID_CSR);
+      }
+
+      JcaPKCS10CertificationRequest csr = new JcaPKCS10CertificationRequest(csrBlock.getDer())
+          .setProvider(BouncyCastleProvider.PROVIDER_NAME);
+      PublicKey publicKey = csr.getPublicKey();
+      if (!csr.isSignatureValid(new JcaContentVerifierProviderBuilder()
+          .setProvider(BouncyCastleProvider.PROVIDER_NAME).build(publicKey))) {
+        throw new BadRequestException(BotConstants.INVALID_CSR);
+      }
+
+      if (publicKey instanceof RSAPublicKey) {
+        if (((RSAPublicKey) publicKey).getModulus().bitLength() < BotConstants.MIN_RSA_KEY_SIZE) {
+          throw new BadRequestException(BotConstants.WEAK_CSR_KEY);
+        }
+      } else if (!(publicKey instanceof ECPublicKey) || !CSR_EC_CURVES.contains(
+          csr.getSubjectPublicKeyInfo().getAlgorithm().getParameters())) {
+        //Explicit curve parameters are rejected along with weak named curves
+        throw new BadRequestException(BotConstants.WEAK_CSR_KEY);
+      }
+
+      return publicKey;
+    } catch (BadRequestException e) {
+      throw e;
+    } catch (Exception e) {
+      LOG.warn("Could not verify certificate signing request: ", e);
+      throw new BadRequestException(BotConstants.INVALID_CSR);
+    }
+  }
+
+  /**
+   * Registers a cert on the pod as a trusted user cert.
+   * Certs issued by the issuing CA are trusted through the CA, so the CA is registered instead.
+   * Adds company cert info to bootstrap state.
+   * @param commonName name of the cert
+   * @param certificate the cert to register
+   * @param issuingCa the CA that issued the cert, or null if it was not issued by one
+   * @return the cert info saved to bootstrap state
+   */
+  private CompanyCert registerCert(String commonName, X509Certificate certificate,
+      IssuingCa issuingCa, DeveloperBootstrapState bootstrapState)
+      throws GeneralSecurityException, IOException, ApiException {
+    CompanyCert companyCert = createCompanyCert(commonName + ".cer", certificate,
+        CompanyCertType.TypeEnum.USER);
+    if (issuingCa != null) {
+      registerIssuingCa(issuingCa);
+    } else {
+      securityClient.createCert(companyCert);
+      LOG.info("Registered new cert " + commonName + ".");
+    }
+
+    //Save cert info for later
+    bootstrapState.getCompanyCertMap().put(commonName, companyCert);
+    return companyCert;
+  }
+
+  /**
+   * Registers the issuing CA on the pod as a trusted user signing cert, once per admin bot.
+   * If registering fails, the CA only counts as registered if the pod already knows it.
+   * Otherwise the failure is thrown, and registering is retried by the next bootstrap.
+   * Only bootstraps that need the CA wait on the pod calls made here.
+   * @param issuingCa the issuing CA
+   */
+  private void registerIssuingCa(IssuingCa issuingCa)
+      throws GeneralSecurityException, IOException, ApiException {
+    if (ISSUING_CA_REGISTERED.get()) {
+      return;
+    }
+
+    synchronized (ISSUING_CA_REGISTER_LOCK) {
+      if (ISSUING_CA_REGISTERED.get()) {
+        return;
+      }
+
+      X509Certificate caCert = issuingCa.getCertificate();
+      CompanyCert companyCert = createCompanyCert(System.getProperty(BotConfig.ISSUING_CA_FILE),
+          caCert, CompanyCertType.TypeEnum.USERSIGNING);
+      try {
+        securityClient.createCert(companyCert);
+        LOG.info("Registered issuing CA " + caCert.getSubjectX500Principal().getName() + ".");
+      } catch (ApiException e) {
+        //Most likely registered by an earlier run, which the pod confirms by fingerprint
+        String fingerPrint = Hashing.sha1().hashBytes(caCert.getEncoded()).toString();
+        if (securityClient.getCert(fingerPrint) == null) {
+          LOG.error("Could not register issuing CA " + caCert.getSubjectX500Principal().getName()
+              + ": ", e);
+          throw e;
+        }
+        LOG.info("Issuing CA " + caCert.getSubjectX500Principal().getName()
+            + " is already registered.");
+      }
+      ISSUING_CA_REGISTERED.set(true);
+    }
+  }
+
+  /**
+   * Creates the company cert info for a cert.
+   * @param name the name of the cert on the pod
+   * @param certificate the cert
+   * @param type the company cert type
+   * @return the trusted company cert
+   */
+  private CompanyCert createCompanyCert(String name, X509Certificate certificate,
+      CompanyCertType.TypeEnum type) throws IOException {
+    CompanyCert companyCert = new CompanyCert();
+    companyCert.setPem(convertCertificateToPEM(certificate));
+
+    CompanyCertAttributes companyCertAttributes = new CompanyCertAttributes();
+    companyCertAttributes.setName(name);
+
+    CompanyCertStatus status = new CompanyCertStatus();
+    status.setType(CompanyCertStatus.TypeEnum.TRUSTED);
+    companyCertAttributes.setStatus(status);
+
+    CompanyCertType certType = new CompanyCertType();
+    certType.setType(type);
+    companyCertAttributes.setType(certType);
+    companyCert.attributes(companyCertAttributes);
+    return companyCert;
+  }
+
   /**
    * Uploads certs as a zip attachment to partner IM.
    * If developer room is null, will upload to developer IM instead.
+   * Certs signed from a certificate signing request have no p12, and are left out of the zip.
+   * Team members share the same certs, so a bundle is only zipped once,
+   * and only uploaded once per stream.
    * @param developerState the current state of the partner in the sign up process
    */
   public void uploadCerts(DeveloperBootstrapState developerState){
     try {
-      String path = System.getProperty(BotConfig.DEVELOPER_P12_DIR);
       Developer developer = developerState.getDeveloper();
-      String outputPath = path + developer.getFirstName() + developer.getLastName() + "Certs.zip";
-      Set<String> certPaths = new HashSet<>();
+      String zipName = developer.getFirstName() + developer.getLastName() + "Certs.zip";
+      Map<String, byte[]> certs = new TreeMap<>();
+      DeveloperSignUpForm signUpForm = developerState.getDeveloperSignUpForm();
 
-      certPaths.add(path + developerState.getBootstrapInfo().getBotUsername() + ".p12");
+      String botUsername = developerState.getBootstrapInfo().getBotUsername();
+      if(StringUtils.isBlank(signUpForm.getBotCsr())) {
+        certs.put(botUsername + ".p12", getCert(botUsername));
+      }
 
-      if(StringUtils.isNotBlank(developerState.getBootstrapInfo().getAppId())) {
-        certPaths.add(path + developerState.getBootstrapInfo().getAppId() + ".p12");
+      if(StringUtils.isNotBlank(developerState.getBootstrapInfo().getAppId())
+          && StringUtils.isBlank(signUpForm.getAppCsr())) {
+        String appId = developerState.getBootstrapInfo().getAppId();
+        certs.put(appId + ".p12", getCert(appId));
       }
 
-      File zip = FileUtil.zipFiles(outputPath, certPaths);
+      if(certs.isEmpty()) {
+        developerState.setCertAttachmentInfo(new ArrayList<>());
+        return;
+      }
 
-      Set<File> attachments = new HashSet<>();
-      attachments.add(zip);
+      String bundleHash = hashBundle(certs);
+      byte[] zip = BUNDLES.get(bundleHash, () -> FileUtil.zipBytes(certs));
 
       Stream stream = developerState.getDeveloperIM();
       if(developerState.getDeveloperRoom() != null) {
         stream = developerState.getDeveloperRoom();
       }
 
-      developerState.setCertAttachmentInfo(
-          attachmentsClient.uploadAttachments(stream, attachments));
+      Stream uploadStream = stream;
+      List<AttachmentInfo> attachmentInfo = BUNDLE_UPLOADS.get(bundleHash + ":" + stream.getId(),
+          () -> {
+            List<AttachmentInfo> uploaded = new ArrayList<>();
+            uploaded.add(attachmentsClient.uploadAttachment(uploadStream, zipName, zip));
+            return uploaded;
+          });
+      developerState.setCertAttachmentInfo(new ArrayList<>(attachmentInfo));
 
       if(developerState.getDeveloperRoom() != null) {
         LOG.info("Uploaded certs to room create by user " + developerState.getUserDetail()
@@ -201,9 +452,16 @@ public class DeveloperCertService {
 
   /**
    * Generate an X509 cert for use as the keystore cert chain
+   * @param subject the cert subject
+   * @param subjectKey the public key to certify
+   * @param issuer the issuer name, the same as the subject for self signed certs
+   * @param issuerKeys the key pair to sign with
+   * @param keyAlgorithm the algorithm of the issuer key
+   * @param validDuration how many days the cert is valid for
    * @return the cert
    */
-  private X509Certificate generateCertificate(String name, KeyPair keys, int validDuration)
+  private X509Certificate generateCertificate(X500Principal subject, PublicKey subjectKey,
+      X500Principal issuer, KeyPair issuerKeys, KeyAlgorithm keyAlgorithm, int validDuration)
       throws CertificateException {
     X509Certificate cert;
 
@@ -219,16 +477,14 @@ public class DeveloperCertService {
 
     try {
       X509v3CertificateBuilder certBuilder = new JcaX509v3CertificateBuilder(
-          new X500Principal("CN=" + name),
-          BigInteger.ONE,
+          issuer,
+          //Random and never zero, so serials are unique per issuer in practice
+          new BigInteger(BotConstants.SERIAL_NUMBER_BITS, SERIAL_RANDOM).setBit(0),
           startDate, endDate,
-          new X500Principal("CN=" + name),
-          keys.getPublic());
+          subject,
+          subjectKey);
 
-      AlgorithmIdentifier sigAlgId = new DefaultSignatureAlgorithmIdentifierFinder().find("SHA1withRSA");
-      AlgorithmIdentifier digAlgId = new DefaultDigestAlgorithmIdentifierFinder().find(sigAlgId);
-      AsymmetricKeyParameter keyParam = PrivateKeyFactory.createKey(keys.getPrivate().getEncoded());
-      ContentSigner sigGen = new BcRSAContentSignerBuilder(sigAlgId, digAlgId).build(keyParam);
+      ContentSigner sigGen = keyAlgorithm.createSigner(issuerKeys.getPrivate());
       X509CertificateHolder certHolder = certBuilder.build(sigGen);
 
       // now lets convert this thing back to a regular old java cert
@@ -248,47 +504,166 @@ public class DeveloperCertService {
   }
 
   /**
-   * Writes cert to file
+   * Hashes the contents of a cert bundle.
+   * Zip output includes timestamps, so the entries are hashed rather than the zip itself.
+   * @param certs the bundle entries, in a stable order
+   * @return the bundle hash
+   */
+  private String hashBundle(Map<String, byte[]> certs) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    for (Map.Entry<String, byte[]> cert : certs.entrySet()) {
+      hasher.putInt(cert.getKey().length())
+          .putString(cert.getKey(), StandardCharsets.UTF_8)
+          .putInt(cert.getValue().length)
+          .putBytes(cert.getValue());
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Creates a p12 file in memory
    * @param alias the alias to save the cert as
-   * @param certificate the certificate to save
+   * @param outChain the cert chain to save, starting with the cert for the key pair
    * @param keys the key pair for the cert
-   * @param path the path to save the cert to
    * @param password the cert password
+   * @return the p12 bytes
    */
-  private void writeCert(String alias, Certificate certificate, KeyPair keys, String path, char[] password){
-    Certificate[] outChain = {certificate};
-    try {
-      KeyStore outStore = KeyStore.getInstance("PKCS12");
-      outStore.load(null, password);
-      outStore.setKeyEntry(alias, keys.getPrivate(), password, outChain);
-      OutputStream outputStream = new FileOutputStream(path + alias + ".p12");
-      outStore.store(outputStream, password);
-      outputStream.flush();
-      outputStream.close();
-    } catch (KeyStoreException e) {
-      e.printStackTrace();
-    } catch (CertificateException e) {
-      e.printStackTrace();
-    } catch (NoSuchAlgorithmException e) {
-      e.printStackTrace();
-    } catch (IOException e) {
-      e.printStackTrace();
+  private byte[] createP12(String alias, Certificate[] outChain, KeyPair keys, char[] password)
+      throws GeneralSecurityException, IOException {
+    KeyStore outStore = KeyStore.getInstance("PKCS12");
+    outStore.load(null, password);
+    outStore.setKeyEntry(alias, keys.getPrivate(), password, outChain);
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    outStore.store(outputStream, password);
+    return outputStream.toByteArray();
+  }
+
+  /**
+   * Writes cert to file in the background, off the bootstrap path
+   * @param alias the alias the cert was saved as
+   * @param p12 the p12 bytes
+   * @param path the path to save the cert to
+   */
+  private void writeCert(String alias, byte[] p12, String path) {
+    CERT_WRITER.execute(() -> {
+      try {
+        Files.write(Paths.get(path + alias + ".p12"), p12);
+      } catch (IOException e) {
+        LOG.error("Could not write cert " + alias + " to disk: ", e);
+      }
+    });
+  }
+
+  /**
+   * Gets a generated p12 file, falling back to disk for certs generated before a restart
+   * @param alias the alias the cert was saved as
+   * @return the p12 bytes
+   */
+  private byte[] getCert(String alias) throws IOException {
+    byte[] p12 = GENERATED_CERTS.getIfPresent(alias);
+    if (p12 == null) {
+      p12 = Files.readAllBytes(
+          Paths.get(System.getProperty(BotConfig.DEVELOPER_P12_DIR) + alias + ".p12"));
+    }
+    return p12;
+  }
+
+  /**
+   * Gets the issuing CA, loading it from the cert directory on first use.
+   * @return the issuing CA, or null if developer certs are not issued by a CA
+   */
+  private static synchronized IssuingCa getIssuingCa() throws GeneralSecurityException {
+    if (!issuingCaLoaded) {
+      String caFile = System.getProperty(BotConfig.ISSUING_CA_FILE);
+      if (StringUtils.isNotBlank(caFile)) {
+        try {
+          issuingCa = IssuingCa.load(new File(System.getProperty(BotConfig.CERTS_DIR), caFile),
+              loadPasswordMap());
+          LOG.info("Loaded issuing CA " + issuingCa.getCertificate().getSubjectX500Principal()
+              .getName() + ".");
+        } catch (Exception e) {
+          throw new GeneralSecurityException("Could not load issuing CA " + caFile + ".", e);
+        }
+      }
+      issuingCaLoaded = true;
+    }
+    return issuingCa;
+  }
+
+  /**
+   * Gets the key pair that signs certs requested with a CSR, loading it from the
+   * cert directory or generating and saving it there on first use.
+   * Keeping it on disk means certs signed before a restart still chain to the same issuer.
+   * Like the issuing CA, its password is mapped in the keys password file.
+   * @return the issuer key pair
+   */
+  private KeyPair getCsrIssuerKeys() throws GeneralSecurityException, IOException {
+    synchronized (DeveloperCertService.class) {
+      if (csrIssuerKeys == null) {
+        String issuerFileName = System.getProperty(BotConfig.CSR_ISSUER_FILE);
+        String password = loadPasswordMap().get(issuerFileName);
+        if (password == null) {
+          throw new GeneralSecurityException("No password for CSR issuer " + issuerFileName
+              + " in " + System.getProperty(BotConfig.KEYS_PASSWORD_FILE) + ".");
+        }
+        Path issuerFile = Paths.get(System.getProperty(BotConfig.CERTS_DIR), issuerFileName);
+        if (Files.exists(issuerFile)) {
+          KeyStore issuerStore = KeyStore.getInstance("PKCS12");
+          try (InputStream in = Files.newInputStream(issuerFile)) {
+            issuerStore.load(in, password.toCharArray());
+          }
+          Certificate issuerCert = issuerStore.getCertificate(BotConstants.CSR_ISSUER_ALIAS);
+          Key issuerKey = issuerStore.getKey(BotConstants.CSR_ISSUER_ALIAS, password.toCharArray());
+          if (issuerCert == null || !(issuerKey instanceof PrivateKey)) {
+            throw new GeneralSecurityException("No CSR issuer key found in " + issuerFile + ".");
+          }
+          csrIssuerKeys = new KeyPair(issuerCert.getPublicKey(), (PrivateKey) issuerKey);
+          LOG.info("Loaded CSR issuer key from " + issuerFile + ".");
+        } else {
+          KeyPair keys = getKeyPairPool().take();
+          X500Principal issuer = new X500Principal("CN=" + BotConstants.CSR_ISSUER_NAME);
+          X509Certificate issuerCert = generateCertificate(issuer, keys.getPublic(), issuer, keys,
+              getKeyPairPool().getKeyAlgorithm(), BotConstants.VALID_DURATION);
+          byte[] p12 = createP12(BotConstants.CSR_ISSUER_ALIAS,
+              new Certificate[] {issuerCert}, keys, password.toCharArray());
+
+          //Write then move, so a crash never leaves a partial issuer file behind
+          Path tempFile = Paths.get(issuerFile + ".tmp");
+          Files.write(tempFile, p12);
+          Files.move(tempFile, issuerFile, StandardCopyOption.REPLACE_EXISTING);
+          csrIssuerKeys = keys;
+          LOG.info("Saved new CSR issuer key to " + issuerFile + ".");
+        }
+      }
+      return csrIssuerKeys;
     }
   }
 
   /**
-   * Creates a key pair
-   * @param encryptionType the encryption type
-   * @param byteCount the byte count
-   * @return a new key pair
+   * Reads the p12 passwords, by file name, from the keys password file.
+   * @return the passwords
    */
-  private KeyPair createKeyPair(String encryptionType, int byteCount)
-      throws NoSuchProviderException, NoSuchAlgorithmException {
-    KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(
-        encryptionType, BouncyCastleProvider.PROVIDER_NAME);
-    keyPairGenerator.initialize(byteCount);
-    KeyPair keyPair = keyPairGenerator.genKeyPair();
-    return keyPair;
+  private static Map<String, String> loadPasswordMap() throws IOException {
+    try (InputStream passwordIn =
+        new FileInputStream(System.getProperty(BotConfig.KEYS_PASSWORD_FILE))) {
+      return MAPPER.readValue(passwordIn, new TypeReference<HashMap<String, String>>() {});
+    }
+  }
+
+  /**
+   * Gets the key pair pool, starting it on first use.
+   * @return the key pair pool
+   */
+  private static synchronized KeyPairPool getKeyPairPool() {
+    if (keyPairPool == null) {
+      keyPairPool = new KeyPairPool(
+          KeyAlgorithm.valueOf(System.getProperty(BotConfig.CERT_KEY_ALGORITHM)),
+          Integer.parseInt(System.getProperty(BotConfig.KEY_POOL_SIZE)),
+          Integer.parseInt(System.getProperty(BotConfig.KEY_POOL_LOW_WATER_MARK)),
+          Integer.parseInt(System.getProperty(BotConfig.KEY_POOL_THREADS)));
+      keyPairPool.start();
+    }
+    return keyPairPool;
   }
 
 }
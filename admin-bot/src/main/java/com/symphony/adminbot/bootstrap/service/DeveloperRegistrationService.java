@@ -40,13 +40,12 @@ import com.symphony.api.pod.model.ApplicationInfo;
 import com.symphony.api.pod.model.Feature;
 import com.symphony.api.pod.model.FeatureList;
 import com.symphony.api.pod.model.Password;
-import com.symphony.api.pod.model.PodAppEntitlement;
-import com.symphony.api.pod.model.PodAppEntitlementList;
 import com.symphony.api.pod.model.UserAppEntitlement;
 import com.symphony.api.pod.model.UserAppEntitlementList;
 import com.symphony.api.pod.model.UserAttributes;
 import com.symphony.api.pod.model.UserCreate;
 import com.symphony.api.pod.model.UserDetail;
+import com.symphony.api.pod.model.UserV2;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang.StringUtils;
@@ -57,8 +56,10 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.ws.rs.InternalServerErrorException;
@@ -98,12 +99,17 @@ public class DeveloperRegistrationService {
 
   private UsersClient usersClient;
   private ApplicationClient applicationClient;
+  private PodAppIndex podAppIndex;
+  private UsernameAllocator usernameAllocator;
 
   private int botId = -1;
 
   public DeveloperRegistrationService(UsersClient usersClient, ApplicationClient applicationClient){
     this.usersClient = usersClient;
     this.applicationClient = applicationClient;
+    this.podAppIndex = new PodAppIndex(usersClient,
+        Long.parseLong(System.getProperty(BotConfig.APP_INDEX_TTL_SECONDS)));
+    this.usernameAllocator = new UsernameAllocator(usersClient, BotConstants.USERNAME_PROBE_BATCH);
   }
 
   /**
@@ -143,26 +149,33 @@ public class DeveloperRegistrationService {
     userCreate.setRoles(roles);
 
     UserDetail userDetail = null;
-    int usernameIndex = 1;
     String baseUsername = userCreate.getUserAttributes().getUserName();
-    boolean usernameExists = true;
-    while (usernameExists) {
-      try {
-        userDetail = usersClient.createUser(userCreate);
-        usernameExists = false;
-      } catch (ApiException e) {
-        if (e.getMessage().equals(BotConstants.USERS_EXIST)) {
-          baseUsername += usernameIndex;
-          while (usersClient.userExistsByUsername(baseUsername)) {
-            baseUsername = baseUsername.replace("" + usernameIndex, "" + (usernameIndex + 1));
-            usernameIndex++;
+    String reservedUsername = null;
+    if (usernameAllocator.isTaken(baseUsername)) {
+      reservedUsername = usernameAllocator.reserve(baseUsername);
+      userCreate.getUserAttributes().setUserName(reservedUsername);
+    }
+    try {
+      for (int attempt = 1; userDetail == null; attempt++) {
+        try {
+          userDetail = usersClient.createUser(userCreate);
+        } catch (ApiException e) {
+          if (!e.getMessage().equals(BotConstants.USERS_EXIST) || attempt >= BotConstants.USERNAME_ATTEMPTS) {
+            LOG.error("Create developer failed: ", e);
+            throw new InternalServerErrorException("Create developer failed: " + e);
           }
-          userCreate.getUserAttributes().setUserName(baseUsername);
-        } else {
-          LOG.error("Create developer failed: ", e);
-          throw new InternalServerErrorException("Create developer failed: " + e);
+          if (reservedUsername != null) {
+            usernameAllocator.release(reservedUsername);
+            reservedUsername = null;
+          }
+          reservedUsername = usernameAllocator.reserve(baseUsername);
+          userCreate.getUserAttributes().setUserName(reservedUsername);
         }
       }
+    } finally {
+      if (reservedUsername != null) {
+        usernameAllocator.release(reservedUsername);
+      }
     }
 
     bootstrapState.setUserDetail(userDetail);
@@ -212,6 +225,15 @@ public class DeveloperRegistrationService {
     return userDetail;
   }
 
+  /**
+   * Gets a bot service user that was registered before.
+   * @param botUserId the user id of the bot
+   * @return the bot user
+   */
+  public UserDetail getBot(Long botUserId) throws ApiException {
+    return usersClient.getUserDetail(botUserId);
+  }
+
   /**
    * Registers a app with pod.
    * @param bootstrapState the developers's current state in the bootstrap process
@@ -253,6 +275,7 @@ public class DeveloperRegistrationService {
     applicationDetail.setApplicationInfo(applicationInfo);
 
     applicationDetail = applicationClient.createApplication(applicationDetail);
+    podAppIndex.appCreated(applicationDetail.getApplicationInfo().getAppId());
     LOG.info("Registered new app " + applicationDetail.getApplicationInfo().getAppId() + " with pod.");
     return applicationDetail;
   }
@@ -309,6 +332,16 @@ public class DeveloperRegistrationService {
     developerBootstrapState.setUserDetail(usersClient.getUserDetail(symphonyUser.getId()));
   }
 
+  /**
+   * Sets a developer's user detail, for a developer that was already looked up.
+   * @param developerBootstrapState the developer state
+   * @param user the developer's user
+   */
+  public void setDeveloperUserDetail(DeveloperBootstrapState developerBootstrapState, UserV2 user)
+      throws ApiException {
+    developerBootstrapState.setUserDetail(usersClient.getUserDetail(user.getId()));
+  }
+
   /**
    * Checks if partners already exist as symphony users.
    * @param signUpForm the sign up form containing the partners
@@ -322,12 +355,7 @@ public class DeveloperRegistrationService {
     }
     allEmails.add(creatorEmail);
 
-    for (String email : allEmails) {
-      if (usersClient.userExistsByEmail(email)) {
-        return true;
-      }
-    }
-    return false;
+    return !usersClient.lookupByEmails(allEmails).isEmpty();
   }
 
   public boolean developerExists(Developer developer) throws ApiException {
@@ -337,19 +365,52 @@ public class DeveloperRegistrationService {
     return false;
   }
 
+  /**
+   * Checks if an app already exists on the pod.
+   * @param appId the app id
+   * @return if the app exists
+   */
+  public boolean appExists(String appId) throws ApiException {
+    return podAppIndex.contains(appId);
+  }
+
+  /**
+   * Looks up which emails already belong to symphony users.
+   * Each email is looked up once, however many sign up forms use it,
+   * and the emails are looked up in batches.
+   * @param emails the emails to look up
+   * @return the emails that belong to symphony users
+   */
+  public Set<String> getExistingEmails(Collection<String> emails) throws ApiException {
+    return new HashSet<>(getUsers(emails).keySet());
+  }
+
+  /**
+   * Looks up the symphony users of a set of emails, in batches.
+   * @param emails the emails to look up
+   * @return the users by email, leaving out emails without a user
+   */
+  public Map<String, UserV2> getUsers(Collection<String> emails) throws ApiException {
+    return usersClient.lookupByEmails(new HashSet<>(emails));
+  }
+
+  /**
+   * Gets the ids of all apps on the pod.
+   * @return the app ids
+   */
+  public Set<String> getPodAppIds() throws ApiException {
+    return podAppIndex.getAppIds();
+  }
+
   /**
    * Checks if bot or app already exists
    * @param developerSignUpForm the sign up form to base the bot and app info on
    * @return if the bot and app does not exist
    */
   public boolean botOrAppExist(DeveloperSignUpForm developerSignUpForm) throws ApiException {
-    if(StringUtils.isNotBlank(developerSignUpForm.getAppId())) {
-      PodAppEntitlementList podAppEntitlements = usersClient.listPodApps();
-      for (PodAppEntitlement appEntitlement : podAppEntitlements) {
-        if (appEntitlement.getAppId().equals(developerSignUpForm.getAppId())) {
-          return true;
-        }
-      }
+    if(StringUtils.isNotBlank(developerSignUpForm.getAppId()) &&
+        podAppIndex.contains(developerSignUpForm.getAppId())) {
+      return true;
     }
     return usersClient.userExistsByEmail(developerSignUpForm.getBotEmail());
   }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.bootstrap.service;
+
+import com.symphony.api.clients.UsersClient;
+import com.symphony.api.pod.client.ApiException;
+import com.symphony.api.pod.model.PodAppEntitlement;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An index of the app ids on the pod, so checking if an app exists does not fetch
+ * the whole pod app list every time.
+ * The index is loaded on first use. Once it is older than its TTL, it is reloaded in the background
+ * while lookups keep using the loaded index.
+ * Creating an app starts a background reload of the index, and the new app counts as existing
+ * until a reload picks it up.
+ */
+public class PodAppIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(PodAppIndex.class);
+  private static final String INDEX_KEY = "appIds";
+
+  private final UsersClient usersClient;
+  private final LoadingCache<String, Set<String>> index;
+  private final ExecutorService refreshExecutor;
+  private final Map<String, Long> createdAppIds = new ConcurrentHashMap<>();
+
+  /**
+   * @param usersClient the client to list pod apps with
+   * @param ttlSeconds how old the index can get before it is reloaded
+   */
+  public PodAppIndex(UsersClient usersClient, long ttlSeconds) {
+    this.usersClient = usersClient;
+    this.refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "pod-app-index");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.index = CacheBuilder.newBuilder()
+        .refreshAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+        .build(new CacheLoader<String, Set<String>>() {
+          @Override
+          public Set<String> load(String key) throws ApiException {
+            return loadAppIds();
+          }
+
+          @Override
+          public ListenableFuture<Set<String>> reload(String key, Set<String> oldAppIds) {
+            ListenableFutureTask<Set<String>> task = ListenableFutureTask.create(() -> loadAppIds());
+            refreshExecutor.execute(task);
+            return task;
+          }
+        });
+  }
+
+  /**
+   * Checks if an app exists on the pod.
+   * @param appId the app id
+   * @return if the app exists
+   */
+  public boolean contains(String appId) throws ApiException {
+    return createdAppIds.containsKey(appId) || getIndex().contains(appId);
+  }
+
+  /**
+   * Gets the ids of all apps on the pod.
+   * @return the app ids
+   */
+  public Set<String> getAppIds() throws ApiException {
+    Set<String> appIds = getIndex();
+    if (createdAppIds.isEmpty()) {
+      return appIds;
+    }
+
+    Set<String> allAppIds = new HashSet<>(appIds);
+    allAppIds.addAll(createdAppIds.keySet());
+    return allAppIds;
+  }
+
+  /**
+   * Reloads the index in the background after creating an app, so lookups never wait on it.
+   * The app counts as existing until a reload that started after it was created,
+   * in case a reload was already running when it was created.
+   * @param appId the id of the created app
+   */
+  public void appCreated(String appId) {
+    createdAppIds.put(appId, System.nanoTime());
+    //An index that was never loaded is loaded on its first lookup instead
+    if (index.getIfPresent(INDEX_KEY) != null) {
+      index.refresh(INDEX_KEY);
+    }
+  }
+
+  private Set<String> getIndex() throws ApiException {
+    try {
+      return index.get(INDEX_KEY);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof ApiException) {
+        throw (ApiException) e.getCause();
+      }
+      throw new ApiException("Could not list pod apps: " + e.getCause());
+    }
+  }
+
+  private Set<String> loadAppIds() throws ApiException {
+    long loadStartedAt = System.nanoTime();
+    Set<String> appIds = new HashSet<>();
+    for (PodAppEntitlement appEntitlement : usersClient.listPodApps()) {
+      appIds.add(appEntitlement.getAppId());
+    }
+
+    createdAppIds.values().removeIf(createdAt -> createdAt - loadStartedAt < 0);
+    LOG.info("Indexed " + appIds.size() + " pod apps.");
+    return Collections.unmodifiableSet(appIds);
+  }
+}
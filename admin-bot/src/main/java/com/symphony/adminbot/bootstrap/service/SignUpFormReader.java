@@ -0,0 +1,220 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.bootstrap.service;
+
+import com.symphony.api.adminbot.model.Developer;
+import com.symphony.api.adminbot.model.DeveloperSignUpForm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a bulk upload of sign up forms, one form per NDJSON line or CSV row.
+ * A record that cannot be read does not fail the upload, it is returned with the reason instead.
+ *
+ * CSV uploads start with a header row naming the sign up form fields. The creator is given by
+ * the creatorFirstName, creatorLastName and creatorEmail columns, and the team column lists
+ * team members as firstName|lastName|email, separated by ";".
+ */
+public class SignUpFormReader {
+  public static final String NDJSON = "ndjson";
+  public static final String CSV = "csv";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  /**
+   * Reads the records of an upload.
+   * @param upload the NDJSON or CSV upload
+   * @param format the upload format, NDJSON if blank
+   * @return the records, in upload order
+   * @throws IllegalArgumentException if the format is unknown
+   */
+  public List<Record> read(String upload, String format) throws IOException {
+    if (StringUtils.isBlank(format) || format.equalsIgnoreCase(NDJSON)) {
+      return readNdjson(upload);
+    } else if (format.equalsIgnoreCase(CSV)) {
+      return readCsv(upload);
+    }
+    throw new IllegalArgumentException("Unknown sign up form format " + format + ".");
+  }
+
+  private List<Record> readNdjson(String upload) throws IOException {
+    List<Record> records = new ArrayList<>();
+    BufferedReader reader = new BufferedReader(new StringReader(upload));
+    int lineNumber = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      if (StringUtils.isBlank(line)) {
+        continue;
+      }
+
+      try {
+        records.add(new Record(lineNumber, MAPPER.readValue(line, DeveloperSignUpForm.class), null));
+      } catch (IOException e) {
+        records.add(new Record(lineNumber, null, "Could not read sign up form: " + e.getMessage()));
+      }
+    }
+
+    return records;
+  }
+
+  private List<Record> readCsv(String upload) throws IOException {
+    List<Record> records = new ArrayList<>();
+    BufferedReader reader = new BufferedReader(new StringReader(upload));
+    String headerLine = reader.readLine();
+    if (headerLine == null) {
+      return records;
+    }
+    List<String> header = splitCsvRow(headerLine);
+
+    int lineNumber = 1;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      if (StringUtils.isBlank(line)) {
+        continue;
+      }
+
+      List<String> values = splitCsvRow(line);
+      Map<String, String> row = new HashMap<>();
+      for (int index = 0; index < header.size() && index < values.size(); index++) {
+        row.put(header.get(index).trim(), values.get(index).trim());
+      }
+
+      try {
+        records.add(new Record(lineNumber, toSignUpForm(row), null));
+      } catch (IllegalArgumentException e) {
+        records.add(new Record(lineNumber, null, e.getMessage()));
+      }
+    }
+
+    return records;
+  }
+
+  private DeveloperSignUpForm toSignUpForm(Map<String, String> row) {
+    DeveloperSignUpForm signUpForm = new DeveloperSignUpForm();
+    signUpForm.setCreator(toDeveloper(row.get("creatorFirstName"), row.get("creatorLastName"),
+        row.get("creatorEmail")));
+
+    List<Developer> team = new ArrayList<>();
+    if (StringUtils.isNotBlank(row.get("team"))) {
+      for (String teamMember : row.get("team").split(";")) {
+        String[] fields = teamMember.split("\\|", -1);
+        if (fields.length != 3) {
+          throw new IllegalArgumentException("Team members must be given as firstName|lastName|email.");
+        }
+        team.add(toDeveloper(fields[0].trim(), fields[1].trim(), fields[2].trim()));
+      }
+    }
+    signUpForm.setTeam(team);
+
+    signUpForm.setAppId(StringUtils.trimToNull(row.get("appId")));
+    signUpForm.setAppName(StringUtils.trimToNull(row.get("appName")));
+    signUpForm.setAppUrl(StringUtils.trimToNull(row.get("appUrl")));
+    signUpForm.setAppCompanyName(StringUtils.trimToNull(row.get("appCompanyName")));
+    signUpForm.setAppDomain(StringUtils.trimToNull(row.get("appDomain")));
+    signUpForm.setAppDescription(StringUtils.trimToNull(row.get("appDescription")));
+    signUpForm.setAppIconUrl(StringUtils.trimToNull(row.get("appIconUrl")));
+    signUpForm.setBotName(StringUtils.trimToNull(row.get("botName")));
+    signUpForm.setBotEmail(StringUtils.trimToNull(row.get("botEmail")));
+    signUpForm.setBotCsr(StringUtils.trimToNull(row.get("botCsr")));
+    signUpForm.setAppCsr(StringUtils.trimToNull(row.get("appCsr")));
+    return signUpForm;
+  }
+
+  private Developer toDeveloper(String firstName, String lastName, String email) {
+    Developer developer = new Developer();
+    developer.setFirstName(firstName);
+    developer.setLastName(lastName);
+    developer.setEmail(email);
+    return developer;
+  }
+
+  /**
+   * Splits a CSV row, allowing quoted values with commas and doubled quotes.
+   * Values cannot span lines.
+   */
+  private List<String> splitCsvRow(String line) {
+    List<String> values = new ArrayList<>();
+    StringBuilder value = new StringBuilder();
+    boolean quoted = false;
+    for (int index = 0; index < line.length(); index++) {
+      char c = line.charAt(index);
+      if (quoted) {
+        if (c == '"' && index + 1 < line.length() && line.charAt(index + 1) == '"') {
+          value.append('"');
+          index++;
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          value.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        values.add(value.toString());
+        value.setLength(0);
+      } else {
+        value.append(c);
+      }
+    }
+    values.add(value.toString());
+    return values;
+  }
+
+  /**
+   * A sign up form from the upload, or why it could not be read.
+   */
+  public static class Record {
+    private final int line;
+    private final DeveloperSignUpForm signUpForm;
+    private final String error;
+
+    Record(int line, DeveloperSignUpForm signUpForm, String error) {
+      this.line = line;
+      this.signUpForm = signUpForm;
+      this.error = error;
+    }
+
+    public int getLine() {
+      return line;
+    }
+
+    public DeveloperSignUpForm getSignUpForm() {
+      return signUpForm;
+    }
+
+    public String getError() {
+      return error;
+    }
+  }
+}
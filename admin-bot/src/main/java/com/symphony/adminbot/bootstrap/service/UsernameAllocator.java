@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.bootstrap.service;
+
+import com.symphony.api.clients.UsersClient;
+import com.symphony.api.pod.client.ApiException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Allocates usernames for developers whose username is already taken, by appending a number.
+ * Candidates are reserved locally, so concurrent sign ups never pick the same username,
+ * and a batch of candidates is checked with a single pod lookup.
+ * The highest number seen for each username is remembered, so the next collision
+ * starts probing right after it.
+ */
+public class UsernameAllocator {
+  private final UsersClient usersClient;
+  private final int batchSize;
+  private final Set<String> reservedUsernames = ConcurrentHashMap.newKeySet();
+  private final Map<String, Integer> highestSuffixes = new ConcurrentHashMap<>();
+
+  /**
+   * @param usersClient the client to look up usernames with
+   * @param batchSize the number of candidates checked per pod lookup
+   */
+  public UsernameAllocator(UsersClient usersClient, int batchSize) {
+    this.usersClient = usersClient;
+    this.batchSize = Math.max(batchSize, 1);
+  }
+
+  /**
+   * Checks if a username is known to be taken, so creating a user with it would fail.
+   * @param baseUsername the username
+   * @return if the username collided before
+   */
+  public boolean isTaken(String baseUsername) {
+    return highestSuffixes.containsKey(baseUsername);
+  }
+
+  /**
+   * Reserves a free username made of the base username and a number.
+   * The reservation must be released once the user is created, or its creation failed.
+   * @param baseUsername the username that is taken
+   * @return the reserved username
+   */
+  public String reserve(String baseUsername) throws ApiException {
+    highestSuffixes.putIfAbsent(baseUsername, 0);
+    int suffix = highestSuffixes.get(baseUsername) + 1;
+    while (true) {
+      Map<String, Integer> candidates = new LinkedHashMap<>();
+      while (candidates.size() < batchSize) {
+        String candidate = baseUsername + suffix;
+        if (reservedUsernames.add(candidate)) {
+          candidates.put(candidate, suffix);
+        }
+        suffix++;
+      }
+
+      String reserved = null;
+      try {
+        Set<String> taken = usersClient.lookupByUsernames(candidates.keySet()).keySet();
+        for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+          if (taken.contains(candidate.getKey())) {
+            highestSuffixes.merge(baseUsername, candidate.getValue(), Math::max);
+          } else if (reserved == null) {
+            reserved = candidate.getKey();
+            highestSuffixes.merge(baseUsername, candidate.getValue(), Math::max);
+          }
+        }
+      } finally {
+        for (String candidate : candidates.keySet()) {
+          if (!candidate.equals(reserved)) {
+            reservedUsernames.remove(candidate);
+          }
+        }
+      }
+
+      if (reserved != null) {
+        return reserved;
+      }
+    }
+  }
+
+  /**
+   * Releases a reserved username.
+   * @param username the reserved username
+   */
+  public void release(String username) {
+    reservedUsernames.remove(username);
+  }
+}
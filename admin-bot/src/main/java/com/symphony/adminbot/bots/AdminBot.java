@@ -30,6 +30,7 @@ import com.symphony.adminbot.model.session.AdminBotUserSessionManager;
 import com.symphony.api.adminbot.api.factories.V1ApiServiceFactory;
 import com.symphony.api.clients.AuthorizationClient;
 import com.symphony.api.clients.SymphonyClient;
+import com.symphony.api.clients.UserLookupCache;
 import com.symphony.api.clients.model.SymphonyAuth;
 
 import org.bouncycastle.asn1.x500.RDN;
@@ -44,6 +45,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.security.Security;
 import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -96,6 +98,13 @@ public class AdminBot extends HttpServlet {
           symAuth,
           System.getProperty(BotConfig.SYMPHONY_AGENT),
           System.getProperty(BotConfig.SYMPHONY_POD));
+
+      if (Boolean.parseBoolean(System.getProperty(BotConfig.USER_CACHE_ENABLED))) {
+        symClient.getUsersClient().setLookupCache(new UserLookupCache(
+            TimeUnit.SECONDS.toMillis(Long.parseLong(System.getProperty(BotConfig.USER_CACHE_HIT_TTL_SECONDS))),
+            TimeUnit.SECONDS.toMillis(Long.parseLong(System.getProperty(BotConfig.USER_CACHE_MISS_TTL_SECONDS))),
+            BotConstants.USER_CACHE_MAX_ENTRIES));
+      }
     } catch (Exception e) {
       LOG.error("Authentication failed for bot: ", e);
     }
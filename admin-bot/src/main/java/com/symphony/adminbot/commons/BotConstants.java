@@ -30,17 +30,30 @@ public class BotConstants {
   public static final String NOT_ENTITLED = "User is not entitled to use these endpoints.";
   public static final String INTERNAL_ERROR = "Internal server error.";
   public static final String NO_CERT = "Please provide a cert with request.";
+  public static final String JOB_NOT_FOUND = "Bootstrap job not found.";
+  public static final String JOB_QUEUE_FULL = "Too many bootstrap jobs, try again later.";
+  public static final String VALIDATION_TIMEOUT = "Could not validate sign up form in time, try again later.";
+  public static final String IDEMPOTENCY_KEY_REUSED = "Idempotency key was already used with a different request.";
 
   //Symphony API Errors
   public static final String USERS_EXIST = "Could not create user: {\"code\":0,\"message\":\"User already exists.\"}";
 
   //For cert generation
   public static final String BOT_USERNAME = "BotUser";
+  public static final String CSR_ISSUER_NAME = "Admin Bot Developer Signing";
+  public static final String CSR_ISSUER_ALIAS = "csrissuer";
+  public static final int MIN_RSA_KEY_SIZE = 2048;
+  public static final int SERIAL_NUMBER_BITS = 64;
 
   //Cache
   public static final int VALID_DURATION = 7200;
   public static final long EXPIRE_TIME_DAYS = 1;
   public static final long MANAGER_EXPIRE_MINUTES = 30;
+  public static final int USER_CACHE_MAX_ENTRIES = 10000;
+
+  //Username allocation
+  public static final int USERNAME_PROBE_BATCH = 10;
+  public static final int USERNAME_ATTEMPTS = 5;
 
   //For Email Confirmation
   public static final String ADMIN_BOT_NAME = "Admin Bot";
@@ -67,4 +80,6 @@ public class BotConstants {
   public static final String INVALID_APP_ICON_URL = "The app icon url is invalid.";
   public static final String INVALID_APP_URL = "The app url is invalid.";
   public static final String BOT_DEVELOPER_EMAIL_SAME = "The bot email must be different than developers' emails.";
+  public static final String INVALID_CSR = "The certificate signing request is invalid.";
+  public static final String WEAK_CSR_KEY = "The certificate signing request key must be RSA 2048+ or EC P-256, P-384 or P-521.";
 }
@@ -65,6 +65,31 @@ public class BotConfig {
   public static final String BOOTSTRAP_BOT_ID_ENV = "BOOTSTRAP_BOT_ID";
   public static final String AUTH_PORT_ENV = "AUTH_PORT";
   public static final String SWAGGER_PORT_ENV = "SWAGGER_PORT";
+  public final static String CERTS_RESCAN_SECONDS_ENV = "CERTS_RESCAN_SECONDS";
+  public final static String AUTH_STORES_IN_MEMORY_ENV = "AUTH_STORES_IN_MEMORY";
+  public final static String AUTH_TRUSTSTORE_INDEXED_ENV = "AUTH_TRUSTSTORE_INDEXED";
+  public final static String AUTH_KEYS_LAZY_ENV = "AUTH_KEYS_LAZY";
+  public final static String AUTH_KEYS_CACHE_SIZE_ENV = "AUTH_KEYS_CACHE_SIZE";
+  public final static String KEY_POOL_SIZE_ENV = "KEY_POOL_SIZE";
+  public final static String KEY_POOL_LOW_WATER_MARK_ENV = "KEY_POOL_LOW_WATER_MARK";
+  public final static String KEY_POOL_THREADS_ENV = "KEY_POOL_THREADS";
+  public final static String CERT_KEY_ALGORITHM_ENV = "CERT_KEY_ALGORITHM";
+  public final static String DEVELOPER_P12_PERSIST_ENV = "DEVELOPER_P12_PERSIST";
+  public final static String ISSUING_CA_FILE_ENV = "ISSUING_CA_FILE";
+  public final static String CSR_ISSUER_FILE_ENV = "CSR_ISSUER_FILE";
+  public final static String BOOTSTRAP_THREADS_ENV = "BOOTSTRAP_THREADS";
+  public final static String WELCOME_THREADS_ENV = "WELCOME_THREADS";
+  public final static String VALIDATION_THREADS_ENV = "VALIDATION_THREADS";
+  public final static String VALIDATION_TIMEOUT_MS_ENV = "VALIDATION_TIMEOUT_MS";
+  public final static String APP_INDEX_TTL_SECONDS_ENV = "APP_INDEX_TTL_SECONDS";
+  public final static String USER_CACHE_ENABLED_ENV = "USER_CACHE_ENABLED";
+  public final static String USER_CACHE_HIT_TTL_SECONDS_ENV = "USER_CACHE_HIT_TTL_SECONDS";
+  public final static String USER_CACHE_MISS_TTL_SECONDS_ENV = "USER_CACHE_MISS_TTL_SECONDS";
+  public final static String JOB_THREADS_ENV = "JOB_THREADS";
+  public final static String JOB_QUEUE_SIZE_ENV = "JOB_QUEUE_SIZE";
+  public final static String JOB_MAX_ENV = "JOB_MAX";
+  public final static String BULK_THREADS_ENV = "BULK_THREADS";
+  public final static String IDEMPOTENCY_TTL_HOURS_ENV = "IDEMPOTENCY_TTL_HOURS";
 
   //_____________________________Properties_____________________________//
   /**
@@ -95,7 +120,9 @@ public class BotConfig {
   public final static String CERTS_DIR = "certs.dir";
   public final static String DEVELOPER_JSON_DIR = "adminbot.developer.json.dir";
   public final static String DEVELOPER_P12_DIR = "adminbot.developer.p12.dir";
+  public final static String DEVELOPER_P12_PERSIST = "adminbot.developer.p12.persist";
   public final static String USER_JSON_DIR = "adminbot.user.json.dir";
+  public final static String CERTS_RESCAN_SECONDS = "certs.dir.rescan.seconds";
 
   /**
    * FILES
@@ -103,13 +130,60 @@ public class BotConfig {
   public final static String BOT_KEYSTORE_FILE_NAME = "bot.keystore.file.name";
   public final static String AUTH_KEYSTORE_FILE = "auth.keystore.file";
   public final static String AUTH_TRUSTSTORE_FILE = "auth.truststore.file";
+  public final static String AUTH_STORES_IN_MEMORY = "auth.stores.in.memory";
+  public final static String AUTH_TRUSTSTORE_INDEXED = "auth.truststore.indexed";
+  public final static String AUTH_KEYS_LAZY = "auth.keys.lazy";
+  public final static String AUTH_KEYS_CACHE_SIZE = "auth.keys.cache.size";
   public final static String GOOGLE_CRED_FILE = "google.cred.file";
+  public final static String ISSUING_CA_FILE = "adminbot.issuing.ca.file";
+  public final static String CSR_ISSUER_FILE = "adminbot.csr.issuer.file";
   public final static String BOOTSTRAP_EMAIL_SUBJECT_TEMPLATE = "adminbot.bootstrap.email.subject.template";
   public final static String BOOTSTRAP_EMAIL_MESSAGE_TEMPLATE = "adminbot.bootstrap.email.message.template";
   public final static String BOOTSTRAP_MESSAGE_DIRECTIONAL_TEMPLATE = "adminbot.bootstrap.message.directional.template";
   public final static String BOOTSTRAP_MESSAGE_WELCOME_TEMPLATE = "adminbot.bootstrap.message.welcome.template";
   public final static String BOOTSTRAP_ICON_URL_TEMPLATE = "adminbot.bootstrap.icon.url.template";
 
+  /**
+   * Key pair pool
+   */
+  public final static String KEY_POOL_SIZE = "adminbot.keypool.size";
+  public final static String KEY_POOL_LOW_WATER_MARK = "adminbot.keypool.low.water.mark";
+  public final static String KEY_POOL_THREADS = "adminbot.keypool.threads";
+  public final static String CERT_KEY_ALGORITHM = "adminbot.cert.key.algorithm";
+
+  /**
+   * Bootstrap pool
+   */
+  public final static String BOOTSTRAP_THREADS = "adminbot.bootstrap.threads";
+  public final static String WELCOME_THREADS = "adminbot.welcome.threads";
+  public final static String VALIDATION_THREADS = "adminbot.validation.threads";
+  public final static String VALIDATION_TIMEOUT_MS = "adminbot.validation.timeout.ms";
+  public final static String APP_INDEX_TTL_SECONDS = "adminbot.app.index.ttl.seconds";
+
+  /**
+   * User lookup cache
+   */
+  public final static String USER_CACHE_ENABLED = "adminbot.user.cache.enabled";
+  public final static String USER_CACHE_HIT_TTL_SECONDS = "adminbot.user.cache.hit.ttl.seconds";
+  public final static String USER_CACHE_MISS_TTL_SECONDS = "adminbot.user.cache.miss.ttl.seconds";
+
+  /**
+   * Bootstrap jobs
+   */
+  public final static String JOB_THREADS = "adminbot.jobs.threads";
+  public final static String JOB_QUEUE_SIZE = "adminbot.jobs.queue.size";
+  public final static String JOB_MAX = "adminbot.jobs.max";
+
+  /**
+   * Bulk onboarding
+   */
+  public final static String BULK_THREADS = "adminbot.bulk.threads";
+
+  /**
+   * Idempotency keys
+   */
+  public final static String IDEMPOTENCY_TTL_HOURS = "adminbot.idempotency.ttl.hours";
+
   /**
    * IDs
    */
@@ -162,6 +236,43 @@ public class BotConfig {
         BOOTSTRAP_MESSAGE_DIRECTIONAL_TEMPLATE));
     PROPERTY_SET.add(new EnvironmentConfigProperty(BOOTSTRAP_MESSAGE_WELCOME_TEMPLATE_ENV,
         BOOTSTRAP_MESSAGE_WELCOME_TEMPLATE));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(CERTS_RESCAN_SECONDS_ENV, CERTS_RESCAN_SECONDS,
+        "60"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(AUTH_STORES_IN_MEMORY_ENV, AUTH_STORES_IN_MEMORY,
+        "false"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(AUTH_TRUSTSTORE_INDEXED_ENV,
+        AUTH_TRUSTSTORE_INDEXED, "false"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(AUTH_KEYS_LAZY_ENV, AUTH_KEYS_LAZY, "false"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(AUTH_KEYS_CACHE_SIZE_ENV, AUTH_KEYS_CACHE_SIZE,
+        "1000"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(KEY_POOL_SIZE_ENV, KEY_POOL_SIZE, "8"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(KEY_POOL_LOW_WATER_MARK_ENV,
+        KEY_POOL_LOW_WATER_MARK, "2"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(KEY_POOL_THREADS_ENV, KEY_POOL_THREADS, "1"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(CERT_KEY_ALGORITHM_ENV, CERT_KEY_ALGORITHM,
+        "RSA_2048"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(DEVELOPER_P12_PERSIST_ENV, DEVELOPER_P12_PERSIST,
+        "true"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(ISSUING_CA_FILE_ENV, ISSUING_CA_FILE, ""));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(CSR_ISSUER_FILE_ENV, CSR_ISSUER_FILE,
+        "adminbot-csr-issuer.p12"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(BOOTSTRAP_THREADS_ENV, BOOTSTRAP_THREADS, "4"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(WELCOME_THREADS_ENV, WELCOME_THREADS, "8"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(VALIDATION_THREADS_ENV, VALIDATION_THREADS, "8"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(VALIDATION_TIMEOUT_MS_ENV, VALIDATION_TIMEOUT_MS,
+        "10000"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(APP_INDEX_TTL_SECONDS_ENV, APP_INDEX_TTL_SECONDS,
+        "300"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(USER_CACHE_ENABLED_ENV, USER_CACHE_ENABLED, "false"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(USER_CACHE_HIT_TTL_SECONDS_ENV,
+        USER_CACHE_HIT_TTL_SECONDS, "300"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(USER_CACHE_MISS_TTL_SECONDS_ENV,
+        USER_CACHE_MISS_TTL_SECONDS, "30"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(JOB_THREADS_ENV, JOB_THREADS, "4"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(JOB_QUEUE_SIZE_ENV, JOB_QUEUE_SIZE, "100"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(JOB_MAX_ENV, JOB_MAX, "1000"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(BULK_THREADS_ENV, BULK_THREADS, "4"));
+    PROPERTY_SET.add(new EnvironmentConfigProperty(IDEMPOTENCY_TTL_HOURS_ENV, IDEMPOTENCY_TTL_HOURS, "24"));
   }
 
   /**
@@ -198,15 +309,22 @@ public class BotConfig {
   }
 
   /**
-   * If env exists, use env, otherwise use default config property
+   * If env exists, use env, otherwise use default config property.
+   * Optional properties fall back to a default value when missing from config.
    */
   static class EnvironmentConfigProperty {
     private String envName;
     private String propertyName;
+    private String defaultValue;
 
     EnvironmentConfigProperty(String envName, String propertyName){
+      this(envName, propertyName, null);
+    }
+
+    EnvironmentConfigProperty(String envName, String propertyName, String defaultValue){
       this.envName = envName;
       this.propertyName = propertyName;
+      this.defaultValue = defaultValue;
     }
 
     void initProperty(Configuration configuration){
@@ -214,7 +332,7 @@ public class BotConfig {
         if (System.getenv(envName) != null) {
           System.setProperty(propertyName, System.getenv(envName));
         } else {
-          System.setProperty(propertyName, configuration.getString(propertyName));
+          System.setProperty(propertyName, configuration.getString(propertyName, defaultValue));
         }
       }
     }
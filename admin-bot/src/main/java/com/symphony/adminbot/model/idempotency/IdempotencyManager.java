@@ -0,0 +1,262 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.model.idempotency;
+
+import com.symphony.adminbot.commons.BotConstants;
+import com.symphony.adminbot.util.file.ExpiringFileLoaderCache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import org.apache.commons.io.output.TeeOutputStream;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Runs POST requests once per idempotency key, and replays the first response to retries.
+ * Responses are kept in an expiring cache saved next to the developer json data,
+ * so retries are still replayed after a restart.
+ * A retry that arrives while the first request is still running waits for it.
+ *
+ * Client errors are replayed like responses. Server errors are not kept,
+ * so the request runs again on the next retry. The same goes for streamed responses
+ * that report server errors within the stream.
+ */
+public class IdempotencyManager {
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+  private static final Logger LOG = LoggerFactory.getLogger(IdempotencyManager.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final int UNPROCESSABLE_ENTITY = 422;
+
+  private final ExpiringFileLoaderCache<String, IdempotentResponse> responseCache;
+  private final ConcurrentHashMap<String, CompletableFuture<IdempotentResponse>> inFlight =
+      new ConcurrentHashMap<>();
+  private final long ttlMillis;
+
+  /**
+   * @param filesPath the directory to save responses in
+   * @param ttlHours how long responses are replayed for
+   */
+  public IdempotencyManager(String filesPath, long ttlHours) {
+    this.responseCache = new ExpiringFileLoaderCache<>(
+        filesPath,
+        (cacheKey) -> "idempotency-" + cacheKey,
+        ttlHours,
+        TimeUnit.HOURS,
+        IdempotentResponse.class);
+    this.ttlMillis = TimeUnit.HOURS.toMillis(ttlHours);
+  }
+
+  /**
+   * Runs a request, unless a request with the same idempotency key ran before.
+   * @param idempotencyKey the key sent by the client, or null to always run the request
+   * @param operation the endpoint, so the same key can be used on different endpoints
+   * @param request the request body, retries must send the same body
+   * @param call runs the request
+   * @return the response, or the replayed response of the first request
+   * @throws ClientErrorException if the key was used before with a different request body
+   */
+  public Response execute(String idempotencyKey, String operation, Object request,
+      Supplier<Response> call) {
+    if (StringUtils.isBlank(idempotencyKey)) {
+      return call.get();
+    }
+
+    String cacheKey = hash(operation + ":" + idempotencyKey);
+    String requestHash = hash(toJson(request));
+
+    IdempotentResponse stored = getStored(cacheKey);
+    if (stored != null) {
+      return replay(stored, requestHash);
+    }
+
+    CompletableFuture<IdempotentResponse> execution = new CompletableFuture<>();
+    CompletableFuture<IdempotentResponse> running = inFlight.putIfAbsent(cacheKey, execution);
+    if (running != null) {
+      LOG.info("Waiting on in-flight request for idempotency key " + idempotencyKey + ".");
+      IdempotentResponse completed = await(running);
+      if (completed == null) {
+        //The first response was not kept, so this retry runs the request again
+        return execute(idempotencyKey, operation, request, call);
+      }
+      return replay(completed, requestHash);
+    }
+
+    //The first request may have finished between the lookup and taking the key
+    stored = getStored(cacheKey);
+    if (stored != null) {
+      inFlight.remove(cacheKey, execution);
+      execution.complete(stored);
+      return replay(stored, requestHash);
+    }
+
+    Response response;
+    try {
+      response = call.get();
+    } catch (WebApplicationException e) {
+      if (e.getResponse().getStatus() < 500) {
+        complete(cacheKey, execution, IdempotentResponse.error(operation, requestHash,
+            e.getResponse().getStatus(), e.getMessage()));
+      } else {
+        fail(cacheKey, execution, e);
+      }
+      throw e;
+    } catch (RuntimeException e) {
+      fail(cacheKey, execution, e);
+      throw e;
+    }
+
+    String mediaType = response.getMediaType() != null ? response.getMediaType().toString()
+        : MediaType.APPLICATION_JSON;
+    if (response.getEntity() instanceof StreamingOutput) {
+      //Streamed responses are kept once the whole stream was written
+      StreamingOutput streamingOutput = (StreamingOutput) response.getEntity();
+      return Response.fromResponse(response).entity((StreamingOutput) output -> {
+        ByteArrayOutputStream recorded = new ByteArrayOutputStream();
+        try {
+          streamingOutput.write(new TeeOutputStream(output, recorded));
+        } catch (IOException | RuntimeException e) {
+          fail(cacheKey, execution, e);
+          throw e;
+        }
+        if (streamingOutput instanceof ReplayableOutput
+            && !((ReplayableOutput) streamingOutput).isReplayable()) {
+          LOG.info("Not keeping streamed response with server errors for idempotency key "
+              + idempotencyKey + ".");
+          discard(cacheKey, execution);
+          return;
+        }
+        complete(cacheKey, execution, IdempotentResponse.of(operation, requestHash,
+            response.getStatus(), new String(recorded.toByteArray(), StandardCharsets.UTF_8),
+            mediaType));
+      }).build();
+    }
+
+    complete(cacheKey, execution, IdempotentResponse.of(operation, requestHash,
+        response.getStatus(), toJson(response.getEntity()), mediaType));
+    return response;
+  }
+
+  private IdempotentResponse getStored(String cacheKey) {
+    IdempotentResponse stored;
+    try {
+      stored = responseCache.get(cacheKey);
+    } catch (Exception e) {
+      return null;
+    }
+
+    //Saved responses outlive the cache, so expired ones are ignored when loaded
+    if (System.currentTimeMillis() - stored.getStoredAt() > ttlMillis) {
+      return null;
+    }
+    return stored;
+  }
+
+  private IdempotentResponse await(CompletableFuture<IdempotentResponse> running) {
+    try {
+      return running.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InternalServerErrorException(BotConstants.INTERNAL_ERROR);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new InternalServerErrorException(BotConstants.INTERNAL_ERROR);
+    }
+  }
+
+  private Response replay(IdempotentResponse stored, String requestHash) {
+    if (!stored.getRequestHash().equals(requestHash)) {
+      throw new ClientErrorException(BotConstants.IDEMPOTENCY_KEY_REUSED, UNPROCESSABLE_ENTITY);
+    }
+    if (stored.isError()) {
+      throw new ClientErrorException(stored.getBody(), stored.getStatus());
+    }
+
+    return Response.status(stored.getStatus())
+        .entity(stored.getBody())
+        .type(stored.getMediaType())
+        .header(REPLAYED_HEADER, "true")
+        .build();
+  }
+
+  private void complete(String cacheKey, CompletableFuture<IdempotentResponse> execution,
+      IdempotentResponse response) {
+    responseCache.put(cacheKey, response);
+    inFlight.remove(cacheKey, execution);
+    execution.complete(response);
+  }
+
+  private void discard(String cacheKey, CompletableFuture<IdempotentResponse> execution) {
+    inFlight.remove(cacheKey, execution);
+    execution.complete(null);
+  }
+
+  private void fail(String cacheKey, CompletableFuture<IdempotentResponse> execution,
+      Exception e) {
+    inFlight.remove(cacheKey, execution);
+    execution.completeExceptionally(e);
+  }
+
+  private String toJson(Object value) {
+    try {
+      return MAPPER.writeValueAsString(value);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not serialize for idempotency: ", e);
+    }
+  }
+
+  private String hash(String value) {
+    return Hashing.sha256().hashString(value, StandardCharsets.UTF_8).toString();
+  }
+
+  /**
+   * A streamed response that can only be replayed if the whole stream succeeded.
+   */
+  public interface ReplayableOutput extends StreamingOutput {
+    /**
+     * Called once the stream was written.
+     * @return false if the stream reported server errors, so retries run the request again
+     */
+    boolean isReplayable();
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.model.idempotency;
+
+/**
+ * The response of a request sent with an idempotency key, as replayed to retries.
+ */
+public class IdempotentResponse {
+  private String operation;
+  private String requestHash;
+  private int status;
+  private String body;
+  private String mediaType;
+  private boolean error;
+  private long storedAt;
+
+  public IdempotentResponse() {}
+
+  private IdempotentResponse(String operation, String requestHash, int status, String body,
+      String mediaType, boolean error) {
+    this.operation = operation;
+    this.requestHash = requestHash;
+    this.status = status;
+    this.body = body;
+    this.mediaType = mediaType;
+    this.error = error;
+    this.storedAt = System.currentTimeMillis();
+  }
+
+  /**
+   * @param operation the endpoint
+   * @param requestHash the hash of the request body
+   * @param status the response status
+   * @param body the serialized response entity
+   * @param mediaType the response media type
+   */
+  public static IdempotentResponse of(String operation, String requestHash, int status,
+      String body, String mediaType) {
+    return new IdempotentResponse(operation, requestHash, status, body, mediaType, false);
+  }
+
+  /**
+   * @param operation the endpoint
+   * @param requestHash the hash of the request body
+   * @param status the client error status
+   * @param message the error message
+   */
+  public static IdempotentResponse error(String operation, String requestHash, int status,
+      String message) {
+    return new IdempotentResponse(operation, requestHash, status, message, null, true);
+  }
+
+  public String getOperation() {
+    return operation;
+  }
+
+  public String getRequestHash() {
+    return requestHash;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public String getBody() {
+    return body;
+  }
+
+  public String getMediaType() {
+    return mediaType;
+  }
+
+  public boolean isError() {
+    return error;
+  }
+
+  public long getStoredAt() {
+    return storedAt;
+  }
+}
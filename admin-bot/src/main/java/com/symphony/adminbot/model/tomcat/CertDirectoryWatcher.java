@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.model.tomcat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the cert directory for added, changed and deleted cert files.
+ * Changes are picked up through a NIO watch service, with a periodic rescan as a fallback
+ * for file systems that do not deliver watch events.
+ * All scanning happens on background threads, never on the TLS handshake path.
+ */
+public class CertDirectoryWatcher {
+  private static final Logger LOG = LoggerFactory.getLogger(CertDirectoryWatcher.class);
+
+  //Wait for watch events to settle so half written files are not picked up
+  private static final long SETTLE_MILLIS = 500;
+
+  private final Path certDir;
+  private final long rescanSeconds;
+  private final CertChangeListener listener;
+
+  private final Map<String, FileState> knownFiles = new HashMap<>();
+
+  private ScheduledExecutorService rescanExecutor;
+  private WatchService watchService;
+  private Thread watchThread;
+
+  public CertDirectoryWatcher(String certDir, long rescanSeconds, CertChangeListener listener) {
+    this.certDir = Paths.get(certDir);
+    this.rescanSeconds = rescanSeconds;
+    this.listener = listener;
+  }
+
+  /**
+   * Starts the watch service thread and the periodic rescan.
+   */
+  public synchronized void start() {
+    try {
+      watchService = FileSystems.getDefault().newWatchService();
+      certDir.register(watchService,
+          StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY,
+          StandardWatchEventKinds.ENTRY_DELETE);
+
+      watchThread = new Thread(this::watch, "cert-dir-watcher");
+      watchThread.setDaemon(true);
+      watchThread.start();
+    } catch (IOException e) {
+      LOG.warn("Could not watch cert directory, relying on periodic rescan: ", e);
+    }
+
+    if (rescanSeconds > 0) {
+      rescanExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cert-dir-rescan");
+        thread.setDaemon(true);
+        return thread;
+      });
+      rescanExecutor.scheduleWithFixedDelay(this::scan, rescanSeconds, rescanSeconds,
+          TimeUnit.SECONDS);
+    }
+
+    LOG.info("Watching cert directory " + certDir + " (rescan every " + rescanSeconds + "s).");
+  }
+
+  /**
+   * Stops watching the cert directory.
+   */
+  public synchronized void stop() {
+    if (rescanExecutor != null) {
+      rescanExecutor.shutdownNow();
+    }
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException e) {
+        LOG.warn("Could not close cert directory watch service: ", e);
+      }
+    }
+    if (watchThread != null) {
+      watchThread.interrupt();
+    }
+  }
+
+  /**
+   * Loads the whole cert directory, for the first time.
+   * Unlike {@link #scan()}, the listener is called even if the directory is empty,
+   * and failures are thrown to the caller.
+   */
+  public synchronized void load() throws Exception {
+    applyChanges(true);
+  }
+
+  /**
+   * Compares the cert directory against the last known state,
+   * and notifies the listener of any added, changed or deleted files.
+   * If the listener fails, the changes are retried on the next scan.
+   */
+  public synchronized void scan() {
+    try {
+      applyChanges(false);
+    } catch (Exception e) {
+      LOG.error("Could not apply cert directory changes: ", e);
+    }
+  }
+
+  /**
+   * @param always if the listener should be called even if nothing changed
+   */
+  private void applyChanges(boolean always) throws Exception {
+    File[] files = certDir.toFile().listFiles(
+        (dir, name) -> !name.equals(".DS_Store") && new File(dir, name).isFile());
+    if (files == null) {
+      throw new IOException("Could not list cert directory " + certDir + ".");
+    }
+
+    List<File> changed = new ArrayList<>();
+    //States are taken before the listener runs, so files written meanwhile are picked up next scan
+    Map<String, FileState> changedStates = new HashMap<>();
+    Set<String> removed = new HashSet<>(knownFiles.keySet());
+    for (File file : files) {
+      FileState state = new FileState(file.lastModified(), file.length());
+      removed.remove(file.getName());
+      if (!state.equals(knownFiles.get(file.getName()))) {
+        changed.add(file);
+        changedStates.put(file.getName(), state);
+      }
+    }
+
+    if (!always && changed.isEmpty() && removed.isEmpty()) {
+      return;
+    }
+
+    listener.certsChanged(changed, removed);
+
+    knownFiles.putAll(changedStates);
+    for (String name : removed) {
+      knownFiles.remove(name);
+    }
+  }
+
+  private void watch() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        WatchKey key = watchService.take();
+        key.pollEvents();
+        key.reset();
+
+        WatchKey next;
+        while ((next = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+          next.pollEvents();
+          next.reset();
+        }
+
+        scan();
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      LOG.info("Stopped watching cert directory " + certDir + ".");
+    }
+  }
+
+  /**
+   * Listens for changes within the cert directory.
+   */
+  public interface CertChangeListener {
+    /**
+     * @param changed the files that were added or modified since the last scan
+     * @param removed the names of files that were deleted since the last scan
+     */
+    void certsChanged(List<File> changed, Set<String> removed) throws Exception;
+  }
+
+  private static class FileState {
+    private final long lastModified;
+    private final long length;
+
+    FileState(long lastModified, long length) {
+      this.lastModified = lastModified;
+      this.length = length;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof FileState
+          && lastModified == ((FileState) other).lastModified
+          && length == ((FileState) other).length;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(lastModified) * 31 + Long.hashCode(length);
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.model.tomcat;
+
+import com.symphony.adminbot.util.crypto.KeyFileReader;
+
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parses and decrypts cert files (p12, pem and cer) from the cert directory.
+ * Parsing does not touch the trust/keystore, so files can be parsed in parallel.
+ */
+public class CertFileParser {
+  private Map<String, String> passwordMap;
+  private boolean lazyKeys;
+
+  /**
+   * @param passwordMap the p12 passwords, by file name
+   * @param lazyKeys if p12 keys should only be decrypted when they are first used
+   */
+  public CertFileParser(Map<String, String> passwordMap, boolean lazyKeys) {
+    this.passwordMap = passwordMap;
+    this.lazyKeys = lazyKeys;
+  }
+
+  /**
+   * Parses the keys and certs within a cert file.
+   * @param file the cert file
+   * @return the parsed entries, keyed by the alias to store them under
+   */
+  public ParsedCertFile parse(File file) throws Exception {
+    ParsedCertFile parsed = new ParsedCertFile(file.getName());
+    String ext = FilenameUtils.getExtension(file.getName());
+    String fileName = FilenameUtils.removeExtension(file.getName());
+    if (ext.equals("p12")) {
+      String password = passwordMap.get(file.getName());
+      KeyStore p12 = KeyFileReader.readP12(file, password);
+
+      Enumeration eAliases = p12.aliases();
+      while (eAliases.hasMoreElements()) {
+        String strAlias = (String) eAliases.nextElement();
+        if (p12.isKeyEntry(strAlias)) {
+          Certificate[] chain = p12.getCertificateChain(strAlias);
+          if (lazyKeys) {
+            long lastModified = file.lastModified();
+            parsed.getLazyKeys().put(fileName + strAlias, KeyAliasEntry.lazy(fileName + strAlias,
+                chain, () -> loadP12Key(file, lastModified, password, strAlias)));
+            continue;
+          }
+
+          PrivateKey key = (PrivateKey) p12.getKey(strAlias, password.toCharArray());
+
+          parsed.getKeyEntries().put(fileName + strAlias, new KeyStore.PrivateKeyEntry(key, chain));
+        }
+      }
+    } else if (ext.equals("pem")) {
+      KeyFileReader.PemKeyEntry pem = KeyFileReader.readPem(file);
+      Certificate[] chain = pem.getChain();
+      parsed.getTrustedCerts().put(fileName, chain[0]);
+
+      if (pem.getKey() != null) {
+        parsed.getKeyEntries().put(fileName, new KeyStore.PrivateKeyEntry(pem.getKey(), chain));
+      }
+    } else if (ext.equals("cer")) {
+      CertificateFactory cf = CertificateFactory.getInstance("X.509");
+      try (InputStream in = new FileInputStream(file)) {
+        parsed.getTrustedCerts().put(fileName, cf.generateCertificate(in));
+      }
+    }
+
+    return parsed;
+  }
+
+  /**
+   * Decrypts a single key from a p12 file that was indexed lazily.
+   * @param file the p12 file
+   * @param lastModified when the file was last modified at ingest time
+   * @param password the p12 password
+   * @param alias the alias of the key within the p12 file
+   * @return the private key
+   */
+  private static PrivateKey loadP12Key(File file, long lastModified, String password,
+      String alias) throws Exception {
+    //The cert directory watcher re-ingests changed files, until then the old chain is still in use
+    if (file.lastModified() != lastModified) {
+      throw new CertificateException(file.getName() + " changed since it was indexed.");
+    }
+
+    return (PrivateKey) KeyFileReader.readP12(file, password).getKey(alias, password.toCharArray());
+  }
+
+  /**
+   * The keys and certs parsed from a single cert file.
+   */
+  public static class ParsedCertFile {
+    private final String fileName;
+    private final Map<String, KeyStore.PrivateKeyEntry> keyEntries = new LinkedHashMap<>();
+    private final Map<String, KeyAliasEntry> lazyKeys = new LinkedHashMap<>();
+    private final Map<String, Certificate> trustedCerts = new LinkedHashMap<>();
+
+    ParsedCertFile(String fileName) {
+      this.fileName = fileName;
+    }
+
+    public String getFileName() {
+      return fileName;
+    }
+
+    public Map<String, KeyStore.PrivateKeyEntry> getKeyEntries() {
+      return keyEntries;
+    }
+
+    public Map<String, KeyAliasEntry> getLazyKeys() {
+      return lazyKeys;
+    }
+
+    public Map<String, Certificate> getTrustedCerts() {
+      return trustedCerts;
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.adminbot.model.tomcat;
+
+import com.symphony.adminbot.util.metrics.LatencyHistogram;
+import com.symphony.adminbot.util.metrics.LatencySummary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Records how long the TLS handshake spends inside TomcatCertManager callbacks,
+ * and how often and how long the trust/keystore rebuilds take.
+ */
+public class CertManagerMetrics implements CertManagerMetricsMXBean {
+  private static final Logger LOG = LoggerFactory.getLogger(CertManagerMetrics.class);
+  private static final String OBJECT_NAME = "com.symphony.adminbot:type=TomcatCertManager";
+
+  private final LatencyHistogram checkClientTrusted = new LatencyHistogram();
+  private final LatencyHistogram chooseServerAlias = new LatencyHistogram();
+  private final LatencyHistogram getPrivateKey = new LatencyHistogram();
+  private final LatencyHistogram getCertificateChain = new LatencyHistogram();
+  private final LatencyHistogram storeRebuild = new LatencyHistogram();
+  private final LongAdder storeRebuildFailures = new LongAdder();
+  private final Supplier<CertStoreSnapshot> snapshot;
+
+  public CertManagerMetrics(Supplier<CertStoreSnapshot> snapshot) {
+    this.snapshot = snapshot;
+  }
+
+  /**
+   * Registers the metrics with the platform MBean server.
+   * If metrics are already registered (tomcat may create a cert manager per connector),
+   * the existing registration is kept.
+   */
+  public void register() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      server.registerMBean(this, new ObjectName(OBJECT_NAME));
+      LOG.info("Registered cert manager metrics as " + OBJECT_NAME + ".");
+    } catch (InstanceAlreadyExistsException e) {
+      LOG.info("Cert manager metrics already registered as " + OBJECT_NAME + ".");
+    } catch (Exception e) {
+      LOG.warn("Could not register cert manager metrics: ", e);
+    }
+  }
+
+  public LatencyHistogram checkClientTrustedTimer() {
+    return checkClientTrusted;
+  }
+
+  public LatencyHistogram chooseServerAliasTimer() {
+    return chooseServerAlias;
+  }
+
+  public LatencyHistogram getPrivateKeyTimer() {
+    return getPrivateKey;
+  }
+
+  public LatencyHistogram getCertificateChainTimer() {
+    return getCertificateChain;
+  }
+
+  public LatencyHistogram storeRebuildTimer() {
+    return storeRebuild;
+  }
+
+  public void storeRebuildFailed() {
+    storeRebuildFailures.increment();
+  }
+
+  @Override
+  public LatencySummary getCheckClientTrusted() {
+    return checkClientTrusted.summarize();
+  }
+
+  @Override
+  public LatencySummary getChooseServerAlias() {
+    return chooseServerAlias.summarize();
+  }
+
+  @Override
+  public LatencySummary getGetPrivateKey() {
+    return getPrivateKey.summarize();
+  }
+
+  @Override
+  public LatencySummary getGetCertificateChain() {
+    return getCertificateChain.summarize();
+  }
+
+  @Override
+  public LatencySummary getStoreRebuild() {
+    return storeRebuild.summarize();
+  }
+
+  @Override
+  public long getStoreRebuildFailures() {
+    return storeRebuildFailures.sum();
+  }
+
+  @Override
+  public int getTrustedCertCount() {
+    CertStoreSnapshot current = snapshot.get();
+    return current == null ? 0 : current.getTrustManager().getAcceptedIssuers().length;
+  }
+
+  @Override
+  public int getKeyAliasCount() {
+    CertStoreSnapshot current = snapshot.get();
+    return current == null ? 0 : current.getKeyAliases().size();
+  }
+
+  @Override
+  public void reset() {
+    checkClientTrusted.reset();
+    chooseServerAlias.reset();
+    getPrivateKey.reset();
+    getCertificateChain.reset();
+    storeRebuild.reset();
+    storeRebuildFailures.reset();
+  }
+}
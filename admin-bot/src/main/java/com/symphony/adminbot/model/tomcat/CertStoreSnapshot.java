@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.model.tomcat;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509KeyManager;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * An immutable view of the trust and key managers built from the trust/keystore.
+ * Snapshots are built off to the side and published as a whole,
+ * so concurrent handshakes always see a consistent trust manager, key manager and alias index.
+ */
+public final class CertStoreSnapshot {
+  private final X509TrustManager trustManager;
+  private final X509KeyManager keyManager;
+  private final Set<String> keyAliases;
+
+  private CertStoreSnapshot(X509TrustManager trustManager, X509KeyManager keyManager,
+      Set<String> keyAliases) {
+    this.trustManager = trustManager;
+    this.keyManager = keyManager;
+    this.keyAliases = keyAliases;
+  }
+
+  /**
+   * Builds a snapshot from the current contents of the trust/keystore.
+   * The managers copy the store entries, so later changes to the stores do not affect the snapshot.
+   * @param trustStore the trust store
+   * @param keyStore the key store
+   * @param keyPass the key store password
+   * @param indexedTrust if trust should be checked against an index of the trusted certs,
+   *                     instead of always building a PKIX path
+   * @return the snapshot
+   */
+  public static CertStoreSnapshot build(KeyStore trustStore, KeyStore keyStore, char[] keyPass,
+      boolean indexedTrust) throws GeneralSecurityException, IOException {
+    X509TrustManager trustManager = buildTrustManager(trustStore, indexedTrust);
+
+    KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    keyManagerFactory.init(keyStore, keyPass);
+    KeyManager[] keyManagers = keyManagerFactory.getKeyManagers();
+    if (keyManagers.length == 0) {
+      throw new NoSuchAlgorithmException("No key manager found");
+    }
+
+    Set<String> keyAliases = new HashSet<>();
+    Enumeration<String> aliases = keyStore.aliases();
+    while (aliases.hasMoreElements()) {
+      String alias = aliases.nextElement();
+      if (keyStore.isKeyEntry(alias)) {
+        keyAliases.add(alias);
+      }
+    }
+
+    return new CertStoreSnapshot(trustManager, (X509KeyManager) keyManagers[0],
+        Collections.unmodifiableSet(keyAliases));
+  }
+
+  /**
+   * Builds a snapshot with a key manager that decrypts keys on first use.
+   * @param trustStore the trust store
+   * @param keyManager the lazy key manager
+   * @param indexedTrust if trust should be checked against an index of the trusted certs,
+   *                     instead of always building a PKIX path
+   * @return the snapshot
+   */
+  public static CertStoreSnapshot build(KeyStore trustStore, LazyKeyManager keyManager,
+      boolean indexedTrust) throws GeneralSecurityException, IOException {
+    return new CertStoreSnapshot(buildTrustManager(trustStore, indexedTrust), keyManager,
+        keyManager.getAliases());
+  }
+
+  private static X509TrustManager buildTrustManager(KeyStore trustStore, boolean indexedTrust)
+      throws GeneralSecurityException, IOException {
+    if (indexedTrust) {
+      return IndexedTrustManager.build(trustStore);
+    }
+
+    TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    trustManagerFactory.init(trustStore);
+    TrustManager[] trustmanagers = trustManagerFactory.getTrustManagers();
+    if (trustmanagers.length == 0) {
+      throw new NoSuchAlgorithmException("No trust manager found");
+    }
+    return (X509TrustManager) trustmanagers[0];
+  }
+
+  public X509TrustManager getTrustManager() {
+    return trustManager;
+  }
+
+  public X509KeyManager getKeyManager() {
+    return keyManager;
+  }
+
+  public Set<String> getKeyAliases() {
+    return keyAliases;
+  }
+}
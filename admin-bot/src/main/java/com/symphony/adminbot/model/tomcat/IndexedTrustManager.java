@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.model.tomcat;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * Trust manager that indexes trusted certs by SHA-256 fingerprint and subject DN.
+ * Certs that are trusted directly (such as the self signed developer certs) are accepted
+ * with a single fingerprint lookup, and chains that cannot end at any trusted subject are rejected
+ * without building a path. Everything else goes through the default PKIX trust manager,
+ * which is only built the first time it is needed.
+ */
+public final class IndexedTrustManager implements X509TrustManager {
+  private static final String FINGERPRINT_ALGORITHM = "SHA-256";
+
+  private final Map<ByteBuffer, X509Certificate> byFingerprint;
+  private final Set<X500Principal> trustedSubjects;
+  private final X509Certificate[] acceptedIssuers;
+  private final Supplier<X509TrustManager> pkixTrustManager;
+
+  private IndexedTrustManager(Map<ByteBuffer, X509Certificate> byFingerprint,
+      Set<X500Principal> trustedSubjects, Supplier<X509TrustManager> pkixTrustManager) {
+    this.byFingerprint = byFingerprint;
+    this.trustedSubjects = trustedSubjects;
+    this.acceptedIssuers = byFingerprint.values().toArray(new X509Certificate[0]);
+    this.pkixTrustManager = pkixTrustManager;
+  }
+
+  /**
+   * Indexes the trusted certs in a trust store.
+   * @param trustStore the trust store
+   * @return the trust manager
+   */
+  public static IndexedTrustManager build(KeyStore trustStore)
+      throws GeneralSecurityException, IOException {
+    //The trust store keeps changing, so PKIX is built from a copy taken along with the index
+    KeyStore anchors = KeyStore.getInstance(KeyStore.getDefaultType());
+    anchors.load(null, null);
+
+    Map<ByteBuffer, X509Certificate> byFingerprint = new HashMap<>();
+    Set<X500Principal> trustedSubjects = new HashSet<>();
+    Enumeration<String> aliases = trustStore.aliases();
+    while (aliases.hasMoreElements()) {
+      String alias = aliases.nextElement();
+      Certificate cert = trustStore.getCertificate(alias);
+      if (cert instanceof X509Certificate) {
+        X509Certificate x509Cert = (X509Certificate) cert;
+        anchors.setCertificateEntry(alias, x509Cert);
+        byFingerprint.put(fingerprint(x509Cert), x509Cert);
+        trustedSubjects.add(x509Cert.getSubjectX500Principal());
+      }
+    }
+
+    return new IndexedTrustManager(byFingerprint, trustedSubjects,
+        Suppliers.memoize(() -> buildPkixTrustManager(anchors)));
+  }
+
+  @Override
+  public void checkClientTrusted(X509Certificate[] certs, String authType)
+      throws CertificateException {
+    if (!isDirectlyTrusted(certs, authType)) {
+      pkixTrustManager.get().checkClientTrusted(certs, authType);
+    }
+  }
+
+  @Override
+  public void checkServerTrusted(X509Certificate[] certs, String authType)
+      throws CertificateException {
+    if (!isDirectlyTrusted(certs, authType)) {
+      pkixTrustManager.get().checkServerTrusted(certs, authType);
+    }
+  }
+
+  @Override
+  public X509Certificate[] getAcceptedIssuers() {
+    return acceptedIssuers.clone();
+  }
+
+  /**
+   * Looks up the leaf cert by fingerprint, like PKIX does for chains starting with a trust anchor.
+   * @param certs the peer cert chain
+   * @param authType the key exchange algorithm
+   * @return true if the leaf cert is a trusted cert, false if the chain needs to be built
+   * @throws CertificateException if no cert in the chain was issued by a trusted subject
+   */
+  private boolean isDirectlyTrusted(X509Certificate[] certs, String authType)
+      throws CertificateException {
+    if (certs == null || certs.length == 0 || authType == null || authType.isEmpty()) {
+      throw new IllegalArgumentException("Cert chain and auth type must not be empty.");
+    }
+
+    X509Certificate trusted = byFingerprint.get(fingerprint(certs[0]));
+    if (trusted != null && trusted.equals(certs[0])) {
+      return true;
+    }
+
+    //A path can only be built if some cert in the chain was issued by a trusted subject
+    for (X509Certificate cert : certs) {
+      if (trustedSubjects.contains(cert.getIssuerX500Principal())) {
+        return false;
+      }
+    }
+    throw new CertificateException("No trusted issuer found for "
+        + certs[0].getSubjectX500Principal().getName() + ".");
+  }
+
+  private static ByteBuffer fingerprint(X509Certificate cert) throws CertificateEncodingException {
+    try {
+      return ByteBuffer.wrap(MessageDigest.getInstance(FINGERPRINT_ALGORITHM)
+          .digest(cert.getEncoded()));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(FINGERPRINT_ALGORITHM + " not supported.", e);
+    }
+  }
+
+  private static X509TrustManager buildPkixTrustManager(KeyStore trustStore) {
+    try {
+      TrustManagerFactory trustManagerFactory =
+          TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+      trustManagerFactory.init(trustStore);
+      for (TrustManager trustManager : trustManagerFactory.getTrustManagers()) {
+        if (trustManager instanceof X509TrustManager) {
+          return (X509TrustManager) trustManager;
+        }
+      }
+      throw new NoSuchAlgorithmException("No trust manager found");
+    } catch (NoSuchAlgorithmException | KeyStoreException e) {
+      throw new IllegalStateException("Could not build PKIX trust manager: ", e);
+    }
+  }
+}
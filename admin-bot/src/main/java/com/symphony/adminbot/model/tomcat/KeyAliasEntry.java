@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.adminbot.model.tomcat;
+
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * A key alias, with the cert metadata needed to choose it recorded at ingest time.
+ * The private key is either held directly, or decrypted by a loader the first time it is used.
+ */
+public final class KeyAliasEntry {
+  private final String alias;
+  private final X509Certificate[] chain;
+  private final String keyAlgorithm;
+  private final Set<X500Principal> issuers = new HashSet<>();
+  private final PrivateKey key;
+  private final Callable<PrivateKey> keyLoader;
+
+  private KeyAliasEntry(String alias, Certificate[] chain, PrivateKey key,
+      Callable<PrivateKey> keyLoader) {
+    this.alias = alias;
+    this.chain = Arrays.copyOf(chain, chain.length, X509Certificate[].class);
+    this.keyAlgorithm = this.chain[0].getPublicKey().getAlgorithm();
+    for (X509Certificate cert : this.chain) {
+      issuers.add(cert.getIssuerX500Principal());
+    }
+    this.key = key;
+    this.keyLoader = keyLoader;
+  }
+
+  /**
+   * @param alias the key alias
+   * @param chain the cert chain, starting with the cert for the key
+   * @param key the private key
+   * @return an entry holding an already decoded key
+   */
+  public static KeyAliasEntry eager(String alias, Certificate[] chain, PrivateKey key) {
+    return new KeyAliasEntry(alias, chain, key, null);
+  }
+
+  /**
+   * @param alias the key alias
+   * @param chain the cert chain, starting with the cert for the key
+   * @param keyLoader decrypts the private key when it is first requested
+   * @return an entry that decrypts its key on demand
+   */
+  public static KeyAliasEntry lazy(String alias, Certificate[] chain,
+      Callable<PrivateKey> keyLoader) {
+    return new KeyAliasEntry(alias, chain, null, keyLoader);
+  }
+
+  /**
+   * Checks if the alias can be used for a key type, the same way the SunX509 key manager does.
+   * @param keyType the key algorithm, optionally followed by "_" and the signature algorithm
+   *                of the issuing cert (for example "EC_RSA")
+   * @param acceptedIssuers the issuers accepted by the peer, or null/empty for any issuer
+   * @return if the alias matches
+   */
+  public boolean matches(String keyType, Principal[] acceptedIssuers) {
+    String sigType = null;
+    int separator = keyType.indexOf('_');
+    if (separator != -1) {
+      sigType = keyType.substring(separator + 1);
+      keyType = keyType.substring(0, separator);
+    }
+
+    if (!keyAlgorithm.equals(keyType)) {
+      return false;
+    }
+    if (sigType != null) {
+      if (chain.length > 1) {
+        if (!sigType.equals(chain[1].getPublicKey().getAlgorithm())) {
+          return false;
+        }
+      } else if (!chain[0].getSigAlgName().toUpperCase().contains("WITH" + sigType)) {
+        return false;
+      }
+    }
+
+    if (acceptedIssuers == null || acceptedIssuers.length == 0) {
+      return true;
+    }
+    for (Principal issuer : acceptedIssuers) {
+      if (issuers.contains(issuer instanceof X500Principal ? issuer
+          : new X500Principal(issuer.getName()))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public String getAlias() {
+    return alias;
+  }
+
+  public X509Certificate[] getChain() {
+    return chain.clone();
+  }
+
+  public String getKeyAlgorithm() {
+    return keyAlgorithm;
+  }
+
+  public boolean isLazy() {
+    return keyLoader != null;
+  }
+
+  /**
+   * @return the key held by an eager entry
+   */
+  public PrivateKey getKey() {
+    return key;
+  }
+
+  /**
+   * Decrypts the key of a lazy entry.
+   * @return the private key
+   */
+  public PrivateKey loadKey() throws Exception {
+    return keyLoader.call();
+  }
+}
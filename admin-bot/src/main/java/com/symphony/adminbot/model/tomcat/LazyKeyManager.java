@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.adminbot.model.tomcat;
+
+import com.google.common.cache.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.Socket;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+
+import javax.net.ssl.X509KeyManager;
+
+/**
+ * Key manager backed by an index of key aliases, that only decrypts a private key
+ * the first time its alias is used. Decrypted keys are held in a bounded cache shared
+ * between snapshots, so rebuilding the stores does not decrypt them again.
+ */
+public class LazyKeyManager implements X509KeyManager {
+  private static final Logger LOG = LoggerFactory.getLogger(LazyKeyManager.class);
+
+  private final Map<String, KeyAliasEntry> aliases;
+  private final Map<String, List<KeyAliasEntry>> aliasesByKeyAlgorithm = new HashMap<>();
+  private final Cache<KeyAliasEntry, PrivateKey> keyCache;
+
+  /**
+   * @param aliases the key aliases, copied so later changes to the index do not affect the manager
+   * @param keyCache the cache of decrypted keys
+   */
+  public LazyKeyManager(Map<String, KeyAliasEntry> aliases,
+      Cache<KeyAliasEntry, PrivateKey> keyCache) {
+    this.aliases = Collections.unmodifiableMap(new TreeMap<>(aliases));
+    this.keyCache = keyCache;
+    for (KeyAliasEntry entry : this.aliases.values()) {
+      aliasesByKeyAlgorithm.computeIfAbsent(entry.getKeyAlgorithm(), algorithm -> new ArrayList<>())
+          .add(entry);
+    }
+  }
+
+  public Set<String> getAliases() {
+    return aliases.keySet();
+  }
+
+  @Override
+  public String[] getClientAliases(String keyType, Principal[] issuers) {
+    return getAliases(keyType, issuers);
+  }
+
+  @Override
+  public String chooseClientAlias(String[] keyTypes, Principal[] issuers, Socket socket) {
+    if (keyTypes == null) {
+      return null;
+    }
+
+    for (String keyType : keyTypes) {
+      String alias = chooseAlias(keyType, issuers);
+      if (alias != null) {
+        return alias;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public String[] getServerAliases(String keyType, Principal[] issuers) {
+    return getAliases(keyType, issuers);
+  }
+
+  @Override
+  public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+    return chooseAlias(keyType, issuers);
+  }
+
+  @Override
+  public X509Certificate[] getCertificateChain(String alias) {
+    KeyAliasEntry entry = alias == null ? null : aliases.get(alias);
+    return entry == null ? null : entry.getChain();
+  }
+
+  @Override
+  public PrivateKey getPrivateKey(String alias) {
+    KeyAliasEntry entry = alias == null ? null : aliases.get(alias);
+    if (entry == null) {
+      return null;
+    }
+    if (!entry.isLazy()) {
+      return entry.getKey();
+    }
+
+    try {
+      return keyCache.get(entry, () -> {
+        LOG.info("Decrypting key with alias: " + alias);
+        return entry.loadKey();
+      });
+    } catch (ExecutionException e) {
+      LOG.error("Could not decrypt key with alias " + alias + ": ", e.getCause());
+      return null;
+    }
+  }
+
+  private String chooseAlias(String keyType, Principal[] issuers) {
+    if (keyType == null) {
+      return null;
+    }
+
+    for (KeyAliasEntry entry : candidates(keyType)) {
+      if (entry.matches(keyType, issuers)) {
+        return entry.getAlias();
+      }
+    }
+    return null;
+  }
+
+  private String[] getAliases(String keyType, Principal[] issuers) {
+    if (keyType == null) {
+      return null;
+    }
+
+    List<String> matches = new ArrayList<>();
+    for (KeyAliasEntry entry : candidates(keyType)) {
+      if (entry.matches(keyType, issuers)) {
+        matches.add(entry.getAlias());
+      }
+    }
+    return matches.isEmpty() ? null : matches.toArray(new String[matches.size()]);
+  }
+
+  private List<KeyAliasEntry> candidates(String keyType) {
+    int separator = keyType.indexOf('_');
+    String keyAlgorithm = separator == -1 ? keyType : keyType.substring(0, separator);
+    return aliasesByKeyAlgorithm.getOrDefault(keyAlgorithm, Collections.emptyList());
+  }
+}
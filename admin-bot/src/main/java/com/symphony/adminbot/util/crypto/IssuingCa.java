@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.util.crypto;
+
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A CA the admin bot issues developer certs from.
+ * The CA is registered on the pod once, so the certs it issues are trusted without
+ * registering each of them.
+ */
+public final class IssuingCa {
+  private final Certificate[] chain;
+  private final KeyPair keys;
+  private final KeyAlgorithm keyAlgorithm;
+
+  private IssuingCa(Certificate[] chain, KeyPair keys, KeyAlgorithm keyAlgorithm) {
+    this.chain = chain;
+    this.keys = keys;
+    this.keyAlgorithm = keyAlgorithm;
+  }
+
+  /**
+   * Loads the CA cert chain and key from a p12 or pem file.
+   * @param file the CA file
+   * @param passwordMap the p12 passwords, by file name
+   * @return the CA
+   */
+  public static IssuingCa load(File file, Map<String, String> passwordMap) throws Exception {
+    Certificate[] chain = null;
+    PrivateKey key = null;
+    String ext = FilenameUtils.getExtension(file.getName());
+    if (ext.equals("p12")) {
+      String password = passwordMap.get(file.getName());
+      if (password == null) {
+        throw new CertificateException("No password for " + file.getName() + ".");
+      }
+      KeyStore p12 = KeyFileReader.readP12(file, password);
+      for (String alias : Collections.list(p12.aliases())) {
+        if (p12.isKeyEntry(alias)) {
+          chain = p12.getCertificateChain(alias);
+          key = (PrivateKey) p12.getKey(alias, password.toCharArray());
+          break;
+        }
+      }
+    } else if (ext.equals("pem")) {
+      KeyFileReader.PemKeyEntry pem = KeyFileReader.readPem(file);
+      chain = pem.getChain();
+      key = pem.getKey();
+    }
+
+    if (key == null) {
+      throw new CertificateException("No CA key found in " + file.getName() + ".");
+    }
+    X509Certificate certificate = (X509Certificate) chain[0];
+    if (certificate.getBasicConstraints() < 0) {
+      throw new CertificateException(file.getName() + " is not a CA cert.");
+    }
+
+    return new IssuingCa(chain, new KeyPair(certificate.getPublicKey(), key),
+        KeyAlgorithm.forKey(certificate.getPublicKey()));
+  }
+
+  /**
+   * Builds the chain for a cert issued by this CA.
+   * @param certificate the issued cert
+   * @return the issued cert followed by the CA chain
+   */
+  public Certificate[] chainFor(X509Certificate certificate) {
+    Certificate[] issuedChain = new Certificate[chain.length + 1];
+    issuedChain[0] = certificate;
+    System.arraycopy(chain, 0, issuedChain, 1, chain.length);
+    return issuedChain;
+  }
+
+  public X509Certificate getCertificate() {
+    return (X509Certificate) chain[0];
+  }
+
+  public Certificate[] getChain() {
+    return chain.clone();
+  }
+
+  public KeyPair getKeys() {
+    return keys;
+  }
+
+  public KeyAlgorithm getKeyAlgorithm() {
+    return keyAlgorithm;
+  }
+}
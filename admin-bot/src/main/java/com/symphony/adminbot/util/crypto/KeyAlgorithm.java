@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.adminbot.util.crypto;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+
+/**
+ * The key algorithms certs can be generated with, along with the signature algorithm
+ * used to sign them.
+ */
+public enum KeyAlgorithm {
+  RSA_2048("RSA", 2048, null, "SHA256withRSA"),
+  RSA_3072("RSA", 3072, null, "SHA256withRSA"),
+  EC_P256("EC", 256, "secp256r1", "SHA256withECDSA");
+
+  private final String algorithm;
+  private final int keySize;
+  private final String curve;
+  private final String signatureAlgorithm;
+
+  KeyAlgorithm(String algorithm, int keySize, String curve, String signatureAlgorithm) {
+    this.algorithm = algorithm;
+    this.keySize = keySize;
+    this.curve = curve;
+    this.signatureAlgorithm = signatureAlgorithm;
+  }
+
+  /**
+   * Finds the algorithm of an existing key, such as a CA key loaded from disk.
+   * @param publicKey the public key
+   * @return the key algorithm
+   */
+  public static KeyAlgorithm forKey(PublicKey publicKey) throws NoSuchAlgorithmException {
+    if (publicKey instanceof RSAPublicKey) {
+      return ((RSAPublicKey) publicKey).getModulus().bitLength() >= RSA_3072.keySize
+          ? RSA_3072 : RSA_2048;
+    } else if (publicKey instanceof ECPublicKey) {
+      return EC_P256;
+    }
+    throw new NoSuchAlgorithmException("Unsupported key algorithm " + publicKey.getAlgorithm());
+  }
+
+  /**
+   * Generates a new key pair.
+   * @return the key pair
+   */
+  public KeyPair generateKeyPair() throws GeneralSecurityException {
+    KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(
+        algorithm, BouncyCastleProvider.PROVIDER_NAME);
+    if (curve != null) {
+      keyPairGenerator.initialize(new ECGenParameterSpec(curve));
+    } else {
+      keyPairGenerator.initialize(keySize);
+    }
+    return keyPairGenerator.genKeyPair();
+  }
+
+  /**
+   * Creates a signer for certs issued with a key of this algorithm.
+   * @param privateKey the issuer's private key
+   * @return the signer
+   */
+  public ContentSigner createSigner(PrivateKey privateKey) throws OperatorCreationException {
+    return new JcaContentSignerBuilder(signatureAlgorithm)
+        .setProvider(BouncyCastleProvider.PROVIDER_NAME)
+        .build(privateKey);
+  }
+
+  public String getAlgorithm() {
+    return algorithm;
+  }
+
+  public int getKeySize() {
+    return keySize;
+  }
+
+  public String getSignatureAlgorithm() {
+    return signatureAlgorithm;
+  }
+}
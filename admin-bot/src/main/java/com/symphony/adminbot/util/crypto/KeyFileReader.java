@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.util.crypto;
+
+import com.symphony.adminbot.util.pem.PemBlock;
+import com.symphony.adminbot.util.pem.PemReader;
+
+import org.bouncycastle.asn1.pkcs.RSAPrivateKey;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPrivateCrtKeySpec;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads cert chains and private keys out of p12 and pem files.
+ * Shared by the cert directory parser and the issuing CA.
+ */
+public final class KeyFileReader {
+  private KeyFileReader() {}
+
+  /**
+   * Loads a p12 file.
+   * @param file the p12 file
+   * @param password the p12 password
+   * @return the p12 keystore
+   */
+  public static KeyStore readP12(File file, String password)
+      throws GeneralSecurityException, IOException {
+    KeyStore p12 = KeyStore.getInstance("PKCS12");
+    try (InputStream in = Files.newInputStream(file.toPath())) {
+      p12.load(in, password.toCharArray());
+    }
+    return p12;
+  }
+
+  /**
+   * Reads the cert chain and the first PKCS#8 or PKCS#1 private key out of a pem file.
+   * @param file the pem file
+   * @return the chain, and the key if the file has one
+   */
+  public static PemKeyEntry readPem(File file) throws GeneralSecurityException, IOException {
+    List<Certificate> chain = new ArrayList<>();
+    PemBlock keyBlock = null;
+    for (PemBlock block : PemReader.readBlocks(Files.readAllBytes(file.toPath()))) {
+      if (block.getType().equals(PemBlock.CERTIFICATE)) {
+        chain.add(CertificateFactory.getInstance("X.509")
+            .generateCertificate(new ByteArrayInputStream(block.getDer())));
+      } else if (keyBlock == null && (block.getType().equals(PemBlock.PRIVATE_KEY)
+          || block.getType().equals(PemBlock.RSA_PRIVATE_KEY))) {
+        keyBlock = block;
+      }
+    }
+
+    if (chain.isEmpty()) {
+      throw new CertificateException("No certificate found in " + file.getName() + ".");
+    }
+    PrivateKey key = keyBlock == null ? null : generatePrivateKey(keyBlock, chain.get(0));
+    return new PemKeyEntry(chain.toArray(new Certificate[chain.size()]), key);
+  }
+
+  /**
+   * Generates a PKCS#8 or PKCS#1 private key.
+   * The key algorithm is taken from the certificate that comes with the key.
+   */
+  private static PrivateKey generatePrivateKey(PemBlock keyBlock, Certificate cert)
+      throws GeneralSecurityException {
+    if (keyBlock.getType().equals(PemBlock.RSA_PRIVATE_KEY)) {
+      RSAPrivateKey rsaKey = RSAPrivateKey.getInstance(keyBlock.getDer());
+      return KeyFactory.getInstance("RSA").generatePrivate(new RSAPrivateCrtKeySpec(
+          rsaKey.getModulus(), rsaKey.getPublicExponent(), rsaKey.getPrivateExponent(),
+          rsaKey.getPrime1(), rsaKey.getPrime2(), rsaKey.getExponent1(),
+          rsaKey.getExponent2(), rsaKey.getCoefficient()));
+    }
+
+    return KeyFactory.getInstance(cert.getPublicKey().getAlgorithm())
+        .generatePrivate(new PKCS8EncodedKeySpec(keyBlock.getDer()));
+  }
+
+  /**
+   * The cert chain read from a pem file, and its private key.
+   */
+  public static final class PemKeyEntry {
+    private final Certificate[] chain;
+    private final PrivateKey key;
+
+    PemKeyEntry(Certificate[] chain, PrivateKey key) {
+      this.chain = chain;
+      this.key = key;
+    }
+
+    public Certificate[] getChain() {
+      return chain.clone();
+    }
+
+    /**
+     * @return the private key, or null if the file only holds certs
+     */
+    public PrivateKey getKey() {
+      return key;
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.adminbot.util.crypto;
+
+import com.symphony.adminbot.util.metrics.LatencyHistogram;
+import com.symphony.adminbot.util.metrics.LatencySummary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.ObjectName;
+
+/**
+ * Keeps a number of pre-generated key pairs ready, so request threads do not have to wait on
+ * key generation. Once the pool drops to its low water mark, it is refilled to capacity
+ * on dedicated background threads. If the pool is empty, key pairs are generated inline.
+ */
+public class KeyPairPool implements KeyPairPoolMXBean {
+  private static final Logger LOG = LoggerFactory.getLogger(KeyPairPool.class);
+  private static final String OBJECT_NAME = "com.symphony.adminbot:type=KeyPairPool";
+
+  private final KeyAlgorithm keyAlgorithm;
+  private final int capacity;
+  private final int lowWaterMark;
+  private final BlockingQueue<KeyPair> pool;
+  private final ExecutorService refillExecutor;
+
+  //Key pairs being generated in the background, counted against capacity
+  private final AtomicInteger pending = new AtomicInteger();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder generationFailures = new LongAdder();
+  private final LatencyHistogram generation = new LatencyHistogram();
+
+  /**
+   * @param keyAlgorithm the algorithm to generate key pairs with
+   * @param capacity the number of key pairs to keep ready, 0 to always generate inline
+   * @param lowWaterMark the depth at which the pool is refilled
+   * @param threads the number of background threads generating key pairs
+   */
+  public KeyPairPool(KeyAlgorithm keyAlgorithm, int capacity, int lowWaterMark, int threads) {
+    this.keyAlgorithm = keyAlgorithm;
+    this.capacity = capacity;
+    this.lowWaterMark = Math.min(lowWaterMark, capacity);
+    this.pool = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+
+    AtomicInteger threadCount = new AtomicInteger();
+    this.refillExecutor = Executors.newFixedThreadPool(Math.max(threads, 1), runnable -> {
+      Thread thread = new Thread(runnable, "key-pair-pool-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+  }
+
+  /**
+   * Registers the pool metrics and fills the pool in the background.
+   */
+  public void start() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    } catch (InstanceAlreadyExistsException e) {
+      LOG.info("Key pair pool metrics already registered as " + OBJECT_NAME + ".");
+    } catch (Exception e) {
+      LOG.warn("Could not register key pair pool metrics: ", e);
+    }
+
+    refill();
+    LOG.info("Started " + keyAlgorithm + " key pair pool (capacity " + capacity
+        + ", low water mark " + lowWaterMark + ").");
+  }
+
+  /**
+   * Stops generating key pairs in the background.
+   */
+  public void stop() {
+    refillExecutor.shutdownNow();
+  }
+
+  /**
+   * Takes a ready key pair from the pool, or generates one inline if the pool is empty.
+   * @return a new key pair, never handed out twice
+   */
+  public KeyPair take() throws GeneralSecurityException {
+    KeyPair keyPair = pool.poll();
+    if (keyPair != null) {
+      hits.increment();
+    } else {
+      misses.increment();
+    }
+
+    if (pool.size() <= lowWaterMark) {
+      refill();
+    }
+    return keyPair != null ? keyPair : generate();
+  }
+
+  private void refill() {
+    int inFlight;
+    while ((inFlight = pending.get()) + pool.size() < capacity) {
+      if (!pending.compareAndSet(inFlight, inFlight + 1)) {
+        continue;
+      }
+
+      try {
+        refillExecutor.execute(() -> {
+          try {
+            pool.offer(generate());
+          } catch (Exception e) {
+            generationFailures.increment();
+            LOG.error("Could not generate pooled key pair: ", e);
+          } finally {
+            pending.decrementAndGet();
+          }
+        });
+      } catch (RuntimeException e) {
+        pending.decrementAndGet();
+        LOG.warn("Could not schedule key pair generation: ", e);
+        return;
+      }
+    }
+  }
+
+  private KeyPair generate() throws GeneralSecurityException {
+    long startTime = System.nanoTime();
+    KeyPair keyPair = keyAlgorithm.generateKeyPair();
+    generation.recordSince(startTime);
+    return keyPair;
+  }
+
+  public KeyAlgorithm getKeyAlgorithm() {
+    return keyAlgorithm;
+  }
+
+  @Override
+  public int getDepth() {
+    return pool.size();
+  }
+
+  @Override
+  public int getCapacity() {
+    return capacity;
+  }
+
+  @Override
+  public int getLowWaterMark() {
+    return lowWaterMark;
+  }
+
+  @Override
+  public long getHits() {
+    return hits.sum();
+  }
+
+  @Override
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  @Override
+  public long getGenerationFailures() {
+    return generationFailures.sum();
+  }
+
+  @Override
+  public LatencySummary getGeneration() {
+    return generation.summarize();
+  }
+}
@@ -82,6 +82,9 @@ public class ExpiringFileLoaderCache<K, V> {
    */
   private V attemptLoadFromFile(K key){
     String path = filePath + keyReader.readKey(key) + ".json";
+    if (!new File(path).exists()) {
+      return null;
+    }
     try {
       return MAPPER.readValue(new FileInputStream(path), classRef);
     } catch (Exception e) {
@@ -23,6 +23,7 @@
 package com.symphony.adminbot.util.file;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -32,6 +33,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.util.Map;
 import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -86,6 +88,24 @@ public class FileUtil {
     return new File(outputPath);
   }
 
+  /**
+   * ZIPs entries held in memory, without touching disk
+   * @param entries the zip entry contents, by entry name
+   * @return the zip bytes
+   */
+  public static byte[] zipBytes(Map<String, byte[]> entries) throws IOException {
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    try (ZipOutputStream out = new ZipOutputStream(zip)) {
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        out.putNextEntry(new ZipEntry(entry.getKey()));
+        out.write(entry.getValue());
+        out.closeEntry();
+      }
+    }
+
+    return zip.toByteArray();
+  }
+
   /**
    * Writes string to file
    * @param value the value to write to file
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.adminbot.util.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free latency histogram, cheap enough to record from the TLS handshake path.
+ * Values are bucketed by power of two, with four linear sub buckets each,
+ * so percentiles are reported within 25% of the recorded value.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 2;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+  public LatencyHistogram() {
+    for (int index = 0; index < BUCKETS; index++) {
+      buckets[index] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records a latency.
+   * @param nanos the elapsed time in nanoseconds
+   */
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    buckets[bucketIndex(nanos)].increment();
+    count.increment();
+    totalNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+  }
+
+  /**
+   * Records the time elapsed since a start time.
+   * @param startNanos the start time, from System.nanoTime()
+   */
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Takes a summary of the recorded latencies.
+   * Recording may continue while the summary is taken, so it is approximate under load.
+   * @return the summary, in microseconds
+   */
+  public LatencySummary summarize() {
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int index = 0; index < BUCKETS; index++) {
+      counts[index] = buckets[index].sum();
+      total += counts[index];
+    }
+
+    //Bucket upper bounds can overshoot the largest recorded value, so cap at the max
+    long max = maxNanos.get();
+    double meanMicros = total == 0 ? 0 : totalNanos.sum() / (double) total / 1000;
+    return new LatencySummary(total, meanMicros,
+        Math.min(percentile(counts, total, 0.50), max) / 1000.0,
+        Math.min(percentile(counts, total, 0.99), max) / 1000.0,
+        Math.min(percentile(counts, total, 0.999), max) / 1000.0,
+        max / 1000.0);
+  }
+
+  /**
+   * Clears all recorded latencies.
+   */
+  public void reset() {
+    for (LongAdder bucket : buckets) {
+      bucket.reset();
+    }
+    count.reset();
+    totalNanos.reset();
+    maxNanos.reset();
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  private static long percentile(long[] counts, long total, double quantile) {
+    if (total == 0) {
+      return 0;
+    }
+
+    long rank = (long) Math.ceil(total * quantile);
+    long seen = 0;
+    for (int index = 0; index < counts.length; index++) {
+      seen += counts[index];
+      if (seen >= rank) {
+        return bucketUpperBound(index);
+      }
+    }
+    return bucketUpperBound(counts.length - 1);
+  }
+
+  private static int bucketIndex(long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) nanos;
+    }
+
+    int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+    int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = index % SUB_BUCKETS;
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return ((SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.adminbot.util.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A point in time summary of a latency histogram, in microseconds.
+ * Exposed as composite data through JMX.
+ */
+public class LatencySummary {
+  private final long count;
+  private final double meanMicros;
+  private final double p50Micros;
+  private final double p99Micros;
+  private final double p999Micros;
+  private final double maxMicros;
+
+  @ConstructorProperties({"count", "meanMicros", "p50Micros", "p99Micros", "p999Micros",
+      "maxMicros"})
+  public LatencySummary(long count, double meanMicros, double p50Micros, double p99Micros,
+      double p999Micros, double maxMicros) {
+    this.count = count;
+    this.meanMicros = meanMicros;
+    this.p50Micros = p50Micros;
+    this.p99Micros = p99Micros;
+    this.p999Micros = p999Micros;
+    this.maxMicros = maxMicros;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public double getMeanMicros() {
+    return meanMicros;
+  }
+
+  public double getP50Micros() {
+    return p50Micros;
+  }
+
+  public double getP99Micros() {
+    return p99Micros;
+  }
+
+  public double getP999Micros() {
+    return p999Micros;
+  }
+
+  public double getMaxMicros() {
+    return maxMicros;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus",
+        count, meanMicros, p50Micros, p99Micros, p999Micros, maxMicros);
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.util.pem;
+
+/**
+ * A single decoded PEM block, such as a certificate or a private key.
+ */
+public class PemBlock {
+  public static final String CERTIFICATE = "CERTIFICATE";
+  public static final String PRIVATE_KEY = "PRIVATE KEY";
+  public static final String RSA_PRIVATE_KEY = "RSA PRIVATE KEY";
+  public static final String CERTIFICATE_REQUEST = "CERTIFICATE REQUEST";
+  //Emitted by keytool -certreq and older versions of OpenSSL
+  public static final String NEW_CERTIFICATE_REQUEST = "NEW CERTIFICATE REQUEST";
+
+  private final String type;
+  private final byte[] der;
+
+  public PemBlock(String type, byte[] der) {
+    this.type = type;
+    this.der = der;
+  }
+
+  /**
+   * @return the block label, for example "CERTIFICATE" or "PRIVATE KEY"
+   */
+  public String getType() {
+    return type;
+  }
+
+  /**
+   * @return the DER bytes of the block
+   */
+  public byte[] getDer() {
+    return der;
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.util.pem;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads every PEM block (certificate chains, PKCS#8 and PKCS#1 keys) out of a PEM file.
+ * The bytes are scanned once and base64 is decoded straight into the block's DER array,
+ * without converting the file to a string.
+ */
+public final class PemReader {
+  private static final byte[] BEGIN = "-----BEGIN ".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] END = "-----END ".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] DASHES = "-----".getBytes(StandardCharsets.US_ASCII);
+
+  private static final int WHITESPACE = -2;
+  private static final int INVALID = -1;
+  private static final int[] DECODE = new int[256];
+
+  static {
+    Arrays.fill(DECODE, INVALID);
+    String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+    for (int index = 0; index < alphabet.length(); index++) {
+      DECODE[alphabet.charAt(index)] = index;
+    }
+    DECODE[' '] = WHITESPACE;
+    DECODE['\t'] = WHITESPACE;
+    DECODE['\r'] = WHITESPACE;
+    DECODE['\n'] = WHITESPACE;
+  }
+
+  private PemReader() {}
+
+  /**
+   * Reads all PEM blocks, in the order they appear.
+   * Text outside of BEGIN/END lines is ignored.
+   * @param pem the PEM file contents
+   * @return the decoded blocks
+   * @throws IllegalArgumentException if a block is not terminated or is not valid base64
+   */
+  public static List<PemBlock> readBlocks(byte[] pem) {
+    List<PemBlock> blocks = new ArrayList<>();
+    int position = 0;
+    while ((position = indexOf(pem, BEGIN, position)) >= 0) {
+      int labelStart = position + BEGIN.length;
+      int labelEnd = indexOf(pem, DASHES, labelStart);
+      if (labelEnd < 0) {
+        throw new IllegalArgumentException("Malformed PEM BEGIN line.");
+      }
+      String type = new String(pem, labelStart, labelEnd - labelStart, StandardCharsets.US_ASCII);
+
+      int bodyStart = labelEnd + DASHES.length;
+      int bodyEnd = indexOf(pem, END, bodyStart);
+      int endLabelStart = bodyEnd + END.length;
+      if (bodyEnd < 0 || !regionMatches(pem, endLabelStart, labelStart, labelEnd - labelStart)
+          || !regionMatches(pem, endLabelStart + labelEnd - labelStart, DASHES)) {
+        throw new IllegalArgumentException("Missing END line for PEM block " + type + ".");
+      }
+
+      blocks.add(new PemBlock(type, decode(pem, bodyStart, bodyEnd, type)));
+      position = endLabelStart + (labelEnd - labelStart) + DASHES.length;
+    }
+
+    return blocks;
+  }
+
+  /**
+   * Reads the first PEM block of a type.
+   * @param pem the PEM file contents
+   * @param type the block label
+   * @return the block, or null if there is no block of that type
+   */
+  public static PemBlock readFirst(byte[] pem, String type) {
+    for (PemBlock block : readBlocks(pem)) {
+      if (block.getType().equals(type)) {
+        return block;
+      }
+    }
+    return null;
+  }
+
+  private static byte[] decode(byte[] pem, int start, int end, String type) {
+    int dataChars = 0;
+    for (int index = start; index < end && pem[index] != '='; index++) {
+      int value = DECODE[pem[index] & 0xff];
+      if (value == INVALID) {
+        throw new IllegalArgumentException("PEM block " + type
+            + " is not valid base64 (encrypted PEM blocks are not supported).");
+      }
+      if (value != WHITESPACE) {
+        dataChars++;
+      }
+    }
+
+    byte[] der = new byte[dataChars * 6 / 8];
+    int accumulator = 0;
+    int bits = 0;
+    int length = 0;
+    for (int index = start; index < end && pem[index] != '='; index++) {
+      int value = DECODE[pem[index] & 0xff];
+      if (value == WHITESPACE) {
+        continue;
+      }
+      accumulator = (accumulator << 6) | value;
+      bits += 6;
+      if (bits >= 8) {
+        bits -= 8;
+        der[length++] = (byte) (accumulator >> bits);
+        accumulator &= (1 << bits) - 1;
+      }
+    }
+
+    return der;
+  }
+
+  private static int indexOf(byte[] data, byte[] pattern, int from) {
+    for (int index = from; index <= data.length - pattern.length; index++) {
+      if (regionMatches(data, index, pattern)) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean regionMatches(byte[] data, int offset, byte[] pattern) {
+    if (offset < 0 || offset + pattern.length > data.length) {
+      return false;
+    }
+    for (int index = 0; index < pattern.length; index++) {
+      if (data[offset + index] != pattern[index]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean regionMatches(byte[] data, int offset, int otherOffset, int length) {
+    if (offset < 0 || offset + length > data.length) {
+      return false;
+    }
+    for (int index = 0; index < length; index++) {
+      if (data[offset + index] != data[otherOffset + index]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
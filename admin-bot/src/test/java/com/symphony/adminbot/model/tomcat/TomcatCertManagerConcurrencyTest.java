@@ -0,0 +1,242 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.model.tomcat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.symphony.adminbot.config.BotConfig;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * Runs handshake callbacks against the published snapshot while the trust/keystore is republished.
+ */
+public class TomcatCertManagerConcurrencyTest {
+  private static final int READERS = 8;
+  private static final int REPUBLISHES = 200;
+  private static final int CHURN_CERTS = 4;
+  //Set by the test, or by the cert manager when it sets the default SSL stores
+  private static final List<String> PROPERTIES = Arrays.asList(
+      BotConfig.CONFIG_DIR,
+      BotConfig.AUTH_KEYSTORE_PASSWORD,
+      BotConfig.AUTH_TRUSTSTORE_PASSWORD,
+      BotConfig.AUTH_TRUSTSTORE_FILE,
+      BotConfig.CERTS_DIR,
+      BotConfig.KEYS_PASSWORD_FILE,
+      BotConfig.AUTH_STORES_IN_MEMORY,
+      BotConfig.AUTH_TRUSTSTORE_INDEXED,
+      BotConfig.AUTH_KEYS_LAZY,
+      BotConfig.AUTH_KEYS_CACHE_SIZE,
+      BotConfig.CERTS_RESCAN_SECONDS,
+      "javax.net.ssl.trustStore",
+      "javax.net.ssl.trustStorePassword",
+      "javax.net.ssl.trustStoreType",
+      "javax.net.ssl.keyStore",
+      "javax.net.ssl.keyStorePassword",
+      "javax.net.ssl.keyStoreType");
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final Map<String, String> savedProperties = new HashMap<>();
+  private TomcatCertManager certManager;
+
+  @Before
+  public void saveProperties() {
+    for (String property : PROPERTIES) {
+      savedProperties.put(property, System.getProperty(property));
+    }
+  }
+
+  @After
+  public void restoreProperties() {
+    if (certManager != null) {
+      certManager.close();
+    }
+    for (String property : PROPERTIES) {
+      if (savedProperties.get(property) == null) {
+        System.clearProperty(property);
+      } else {
+        System.setProperty(property, savedProperties.get(property));
+      }
+    }
+  }
+
+  @Test
+  public void readersNeverSeePartialSnapshots() throws Exception {
+    File certDir = folder.newFolder("certs");
+    File churnDir = folder.newFolder("churn");
+    File passwordFile = folder.newFile("passwords.json");
+    Files.write(passwordFile.toPath(), "{}".getBytes("UTF-8"));
+
+    X509Certificate baseline = writeCert(new File(certDir, "baseline.cer"), "baseline");
+    List<File> churnFiles = new ArrayList<>();
+    List<X509Certificate> churnCerts = new ArrayList<>();
+    for (int index = 0; index < CHURN_CERTS; index++) {
+      File churnFile = new File(churnDir, "churn" + index + ".cer");
+      churnCerts.add(writeCert(churnFile, "churn" + index));
+      churnFiles.add(churnFile);
+    }
+
+    //No bot.properties in the config dir, so only the properties set here are used
+    System.setProperty(BotConfig.CONFIG_DIR, folder.getRoot().getAbsolutePath());
+    System.setProperty(BotConfig.AUTH_KEYSTORE_PASSWORD, "changeit");
+    System.setProperty(BotConfig.AUTH_TRUSTSTORE_PASSWORD, "changeit");
+    System.setProperty(BotConfig.AUTH_TRUSTSTORE_FILE,
+        new File(folder.getRoot(), "truststore.jks").getAbsolutePath());
+    System.setProperty(BotConfig.CERTS_DIR, certDir.getAbsolutePath());
+    System.setProperty(BotConfig.KEYS_PASSWORD_FILE, passwordFile.getAbsolutePath());
+    System.setProperty(BotConfig.AUTH_STORES_IN_MEMORY, "true");
+    System.setProperty(BotConfig.AUTH_TRUSTSTORE_INDEXED, "false");
+    System.setProperty(BotConfig.AUTH_KEYS_LAZY, "false");
+    System.setProperty(BotConfig.AUTH_KEYS_CACHE_SIZE, "1000");
+    System.setProperty(BotConfig.CERTS_RESCAN_SECONDS, "0");
+
+    certManager = new TomcatCertManager();
+    assertNotNull(TomcatCertManager.currentSnapshot());
+
+    AtomicBoolean republishing = new AtomicBoolean(true);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    AtomicLong reads = new AtomicLong();
+    CountDownLatch started = new CountDownLatch(READERS);
+    ExecutorService readers = Executors.newFixedThreadPool(READERS);
+    List<Future<?>> readerFutures = new ArrayList<>();
+    for (int reader = 0; reader < READERS; reader++) {
+      readerFutures.add(readers.submit(() -> {
+        started.countDown();
+        while (republishing.get() && failure.get() == null) {
+          try {
+            //Every check runs against one read, so a torn snapshot cannot pass
+            CertStoreSnapshot snapshot = TomcatCertManager.currentSnapshot();
+            assertNotNull(snapshot);
+            X509TrustManager trustManager = snapshot.getTrustManager();
+            List<X509Certificate> issuers = Arrays.asList(trustManager.getAcceptedIssuers());
+            assertTrue("Accepted issuers " + issuers.size(),
+                issuers.size() == 1 || issuers.size() == 2);
+            assertTrue(issuers.contains(baseline));
+            trustManager.checkClientTrusted(new X509Certificate[] {baseline}, "RSA");
+            for (X509Certificate churnCert : churnCerts) {
+              assertEquals(churnCert.getSubjectX500Principal().getName(),
+                  issuers.contains(churnCert), isTrusted(trustManager, churnCert));
+            }
+
+            assertTrue(snapshot.getKeyAliases().isEmpty());
+            assertNull(snapshot.getKeyManager().chooseServerAlias("RSA", null, null));
+            reads.incrementAndGet();
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+          }
+        }
+      }));
+    }
+
+    try {
+      assertTrue(started.await(10, TimeUnit.SECONDS));
+      //Each churn cert is added, then removed again, so at most one is trusted at a time
+      for (int republish = 0; republish < REPUBLISHES && failure.get() == null; republish++) {
+        File churnFile = churnFiles.get(republish / 2 % churnFiles.size());
+        if (republish % 2 == 0) {
+          certManager.updateStores(Collections.singletonList(churnFile),
+              Collections.<String>emptySet());
+        } else {
+          certManager.updateStores(Collections.<File>emptyList(),
+              Collections.singleton(churnFile.getName()));
+        }
+      }
+    } finally {
+      republishing.set(false);
+      for (Future<?> readerFuture : readerFutures) {
+        readerFuture.get(10, TimeUnit.SECONDS);
+      }
+      readers.shutdownNow();
+    }
+
+    if (failure.get() != null) {
+      throw new AssertionError("Reader failed during republish", failure.get());
+    }
+    assertTrue(reads.get() > 0);
+    assertEquals(1, TomcatCertManager.currentSnapshot().getTrustManager().getAcceptedIssuers().length);
+  }
+
+  private static boolean isTrusted(X509TrustManager trustManager, X509Certificate certificate) {
+    try {
+      trustManager.checkClientTrusted(new X509Certificate[] {certificate}, "RSA");
+      return true;
+    } catch (CertificateException e) {
+      return false;
+    }
+  }
+
+  private static X509Certificate writeCert(File file, String commonName) throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair keys = generator.generateKeyPair();
+
+    X500Name name = new X500Name("CN=" + commonName);
+    long now = System.currentTimeMillis();
+    JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(name,
+        BigInteger.valueOf(now), new Date(now - TimeUnit.MINUTES.toMillis(1)),
+        new Date(now + TimeUnit.HOURS.toMillis(1)), name, keys.getPublic());
+    X509Certificate certificate = new JcaX509CertificateConverter().getCertificate(
+        builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(keys.getPrivate())));
+
+    Files.write(file.toPath(), certificate.getEncoded());
+    return certificate;
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.adminbot.util.pem;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Tests for PemReader.
+ */
+public class PemReaderTest {
+  private static final byte[] CERT_DER = der(1000, 1);
+  private static final byte[] KEY_DER = der(1190, 2);
+  //Lengths that need one and two padding characters
+  private static final byte[] ONE_PAD_DER = der(101, 3);
+  private static final byte[] TWO_PAD_DER = der(100, 4);
+
+  @Test
+  public void readsChainAndPkcs1RsaKey() {
+    String pem = block("CERTIFICATE", CERT_DER, "\n")
+        + block("CERTIFICATE", ONE_PAD_DER, "\n")
+        + block("RSA PRIVATE KEY", KEY_DER, "\n");
+
+    List<PemBlock> blocks = PemReader.readBlocks(bytes(pem));
+    assertEquals(3, blocks.size());
+    assertEquals(PemBlock.CERTIFICATE, blocks.get(0).getType());
+    assertArrayEquals(CERT_DER, blocks.get(0).getDer());
+    assertEquals(PemBlock.CERTIFICATE, blocks.get(1).getType());
+    assertArrayEquals(ONE_PAD_DER, blocks.get(1).getDer());
+    assertEquals(PemBlock.RSA_PRIVATE_KEY, blocks.get(2).getType());
+    assertArrayEquals(KEY_DER, blocks.get(2).getDer());
+
+    assertArrayEquals(KEY_DER, PemReader.readFirst(bytes(pem), PemBlock.RSA_PRIVATE_KEY).getDer());
+    assertNull(PemReader.readFirst(bytes(pem), PemBlock.PRIVATE_KEY));
+  }
+
+  @Test
+  public void readsCrlfLineEndings() {
+    String pem = block("CERTIFICATE", CERT_DER, "\r\n")
+        + block("PRIVATE KEY", TWO_PAD_DER, "\r\n");
+
+    List<PemBlock> blocks = PemReader.readBlocks(bytes(pem));
+    assertEquals(2, blocks.size());
+    assertArrayEquals(CERT_DER, blocks.get(0).getDer());
+    assertEquals(PemBlock.PRIVATE_KEY, blocks.get(1).getType());
+    assertArrayEquals(TWO_PAD_DER, blocks.get(1).getDer());
+  }
+
+  @Test
+  public void ignoresTextOutsideBlocks() {
+    String pem = "Bag Attributes\n    friendlyName: bot\n"
+        + block("CERTIFICATE", CERT_DER, "\n") + "trailing text\n";
+
+    List<PemBlock> blocks = PemReader.readBlocks(bytes(pem));
+    assertEquals(1, blocks.size());
+    assertArrayEquals(CERT_DER, blocks.get(0).getDer());
+  }
+
+  @Test
+  public void rejectsMissingEndLine() {
+    String pem = block("CERTIFICATE", CERT_DER, "\n").replace("-----END CERTIFICATE-----\n", "");
+    assertRejected(pem, "Missing END line");
+  }
+
+  @Test
+  public void rejectsMismatchedEndLine() {
+    String pem = block("CERTIFICATE", CERT_DER, "\n")
+        .replace("-----END CERTIFICATE-----", "-----END PRIVATE KEY-----");
+    assertRejected(pem, "Missing END line");
+  }
+
+  @Test
+  public void rejectsEncryptedHeaders() {
+    String pem = block("RSA PRIVATE KEY", KEY_DER, "\n").replaceFirst("-----\n",
+        "-----\nProc-Type: 4,ENCRYPTED\nDEK-Info: AES-128-CBC,0123456789ABCDEF0123456789ABCDEF\n\n");
+    assertRejected(pem, "encrypted PEM blocks are not supported");
+  }
+
+  @Test
+  public void readsBothCsrLabels() {
+    String csr = block("CERTIFICATE REQUEST", CERT_DER, "\n");
+    String newCsr = block("NEW CERTIFICATE REQUEST", KEY_DER, "\n");
+
+    assertArrayEquals(CERT_DER,
+        PemReader.readFirst(bytes(csr), PemBlock.CERTIFICATE_REQUEST).getDer());
+    assertArrayEquals(KEY_DER,
+        PemReader.readFirst(bytes(newCsr), PemBlock.NEW_CERTIFICATE_REQUEST).getDer());
+    //Labels are matched exactly, so callers look for each label
+    assertNull(PemReader.readFirst(bytes(newCsr), PemBlock.CERTIFICATE_REQUEST));
+    assertNull(PemReader.readFirst(bytes(csr), PemBlock.NEW_CERTIFICATE_REQUEST));
+  }
+
+  private static void assertRejected(String pem, String message) {
+    try {
+      PemReader.readBlocks(bytes(pem));
+      fail("Expected " + message);
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains(message));
+    }
+  }
+
+  private static String block(String type, byte[] der, String lineEnding) {
+    return "-----BEGIN " + type + "-----" + lineEnding
+        + Base64.getMimeEncoder(64, lineEnding.getBytes(StandardCharsets.US_ASCII))
+            .encodeToString(der) + lineEnding
+        + "-----END " + type + "-----" + lineEnding;
+  }
+
+  private static byte[] der(int length, int seed) {
+    byte[] der = new byte[length];
+    for (int index = 0; index < length; index++) {
+      der[index] = (byte) (index * 31 + seed);
+    }
+    return der;
+  }
+
+  private static byte[] bytes(String pem) {
+    return pem.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.benchmarks;
+
+import com.symphony.adminbot.util.crypto.KeyAlgorithm;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * Compares the cost of each cert key algorithm across the admin bot's uses of it:
+ * generating key pairs for the key pair pool, issuing certs, and mutually authenticated
+ * TLS handshakes with a cert of that algorithm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyAlgorithmBenchmark {
+  private static final char[] PASSWORD = "changeit".toCharArray();
+  private static final X500Name ISSUER = new X500Name("CN=Benchmark Issuer");
+  private static final X500Name SUBJECT = new X500Name("CN=Benchmark Subject");
+  private static final long VALIDITY_MILLIS = TimeUnit.DAYS.toMillis(1);
+  //Bounds the handshake loop, so a broken handshake fails instead of spinning
+  private static final int MAX_HANDSHAKE_STEPS = 1000;
+
+  @Param({"RSA_2048", "RSA_3072", "EC_P256"})
+  public KeyAlgorithm keyAlgorithm;
+
+  private KeyPair issuerKeys;
+  private PublicKey subjectKey;
+  private SSLContext sslContext;
+
+  @Setup
+  public void setup() throws Exception {
+    if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+    issuerKeys = keyAlgorithm.generateKeyPair();
+    subjectKey = keyAlgorithm.generateKeyPair().getPublic();
+
+    //Both ends of the handshake use one self signed cert, with keys from the default provider
+    X509Certificate cert = new JcaX509CertificateConverter()
+        .getCertificate(issueCert(ISSUER, issuerKeys.getPublic()));
+    PrivateKey key = KeyFactory.getInstance(keyAlgorithm.getAlgorithm())
+        .generatePrivate(new PKCS8EncodedKeySpec(issuerKeys.getPrivate().getEncoded()));
+    KeyStore keyStore = KeyStore.getInstance("JKS");
+    keyStore.load(null, PASSWORD);
+    keyStore.setKeyEntry("key", key, PASSWORD, new Certificate[] {cert});
+    keyStore.setCertificateEntry("trusted", cert);
+
+    KeyManagerFactory keyManagerFactory =
+        KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    keyManagerFactory.init(keyStore, PASSWORD);
+    TrustManagerFactory trustManagerFactory =
+        TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    trustManagerFactory.init(keyStore);
+    sslContext = SSLContext.getInstance("TLSv1.2");
+    sslContext.init(keyManagerFactory.getKeyManagers(), trustManagerFactory.getTrustManagers(),
+        null);
+  }
+
+  @Benchmark
+  public KeyPair generateKeyPair() throws Exception {
+    return keyAlgorithm.generateKeyPair();
+  }
+
+  @Benchmark
+  public X509CertificateHolder issueCert() throws Exception {
+    return issueCert(SUBJECT, subjectKey);
+  }
+
+  @Benchmark
+  public SSLSession handshake() throws Exception {
+    //Engines without a peer host never resume a session, so every handshake is a full one
+    SSLEngine client = sslContext.createSSLEngine();
+    client.setUseClientMode(true);
+    SSLEngine server = sslContext.createSSLEngine();
+    server.setUseClientMode(false);
+    server.setNeedClientAuth(true);
+    return handshake(client, server);
+  }
+
+  /**
+   * Signs a cert the way DeveloperCertService does, with the algorithm's signer.
+   */
+  private X509CertificateHolder issueCert(X500Name subject, PublicKey publicKey)
+      throws Exception {
+    long now = System.currentTimeMillis();
+    return new JcaX509v3CertificateBuilder(ISSUER, BigInteger.valueOf(now),
+        new Date(now - VALIDITY_MILLIS), new Date(now + VALIDITY_MILLIS), subject, publicKey)
+        .build(keyAlgorithm.createSigner(issuerKeys.getPrivate()));
+  }
+
+  /**
+   * Runs a handshake between two engines over in memory buffers.
+   * @return the client's session
+   */
+  private static SSLSession handshake(SSLEngine client, SSLEngine server) throws SSLException {
+    int packetSize = client.getSession().getPacketBufferSize();
+    int applicationSize = client.getSession().getApplicationBufferSize();
+    ByteBuffer clientToServer = ByteBuffer.allocate(packetSize);
+    ByteBuffer serverToClient = ByteBuffer.allocate(packetSize);
+    ByteBuffer clientApplication = ByteBuffer.allocate(applicationSize);
+    ByteBuffer serverApplication = ByteBuffer.allocate(applicationSize);
+
+    client.beginHandshake();
+    server.beginHandshake();
+    for (int step = 0; step < MAX_HANDSHAKE_STEPS; step++) {
+      if (isFinished(client) && isFinished(server)) {
+        return client.getSession();
+      }
+      step(client, serverToClient, clientToServer, clientApplication);
+      step(server, clientToServer, serverToClient, serverApplication);
+    }
+    throw new SSLException("Handshake did not finish.");
+  }
+
+  /**
+   * Moves an engine's handshake forward by one wrap, unwrap or batch of delegated tasks.
+   * @param engine the engine
+   * @param in packets from the peer, ready for writing
+   * @param out packets to the peer, ready for writing
+   * @param application buffer for application data, which the handshake does not produce
+   */
+  private static void step(SSLEngine engine, ByteBuffer in, ByteBuffer out,
+      ByteBuffer application) throws SSLException {
+    HandshakeStatus status = engine.getHandshakeStatus();
+    if (status == HandshakeStatus.NEED_TASK) {
+      Runnable task;
+      while ((task = engine.getDelegatedTask()) != null) {
+        task.run();
+      }
+    } else if (status == HandshakeStatus.NEED_WRAP) {
+      engine.wrap(ByteBuffer.allocate(0), out);
+    } else if (status == HandshakeStatus.NEED_UNWRAP) {
+      in.flip();
+      engine.unwrap(in, application);
+      in.compact();
+    }
+  }
+
+  private static boolean isFinished(SSLEngine engine) {
+    HandshakeStatus status = engine.getHandshakeStatus();
+    return status == HandshakeStatus.FINISHED || status == HandshakeStatus.NOT_HANDSHAKING;
+  }
+}
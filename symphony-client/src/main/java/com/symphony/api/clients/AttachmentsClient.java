@@ -26,15 +26,24 @@ import com.symphony.api.agent.api.AttachmentsApi;
 import com.symphony.api.agent.client.ApiClient;
 import com.symphony.api.agent.client.ApiException;
 import com.symphony.api.agent.client.Configuration;
+import com.symphony.api.agent.client.Pair;
 import com.symphony.api.agent.model.AttachmentInfo;
 import com.symphony.api.clients.model.SymphonyAuth;
 import com.symphony.api.pod.model.Stream;
 
+import org.glassfish.jersey.media.multipart.FormDataBodyPart;
+import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
+
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+
 /**
  * Created by nick.tarsillo on 7/1/17.
  */
@@ -67,6 +76,37 @@ public class AttachmentsClient {
     return attachmentInfoList;
   }
 
+  /**
+   * Uploads an attachment held in memory, without writing it to disk first.
+   * @param stream the stream to upload to
+   * @param fileName the attachment file name
+   * @param content the attachment content
+   * @return the attachment info
+   */
+  public AttachmentInfo uploadAttachment(Stream stream, String fileName, byte[] content)
+      throws ApiException {
+    String path = "/v3/stream/" + apiClient.escapeString(stream.getId()) + "/attachment/create";
+
+    Map<String, String> headerParams = new HashMap<>();
+    headerParams.put("sessionToken", symAuth.getSessionToken().getToken());
+    headerParams.put("keyManagerToken", symAuth.getKeyToken().getToken());
+
+    FormDataContentDisposition contentDisp = FormDataContentDisposition.name("file")
+        .fileName(fileName).size(content.length).build();
+    Map<String, Object> formParams = new HashMap<>();
+    formParams.put("file",
+        new FormDataBodyPart(contentDisp, content, MediaType.APPLICATION_OCTET_STREAM_TYPE));
+
+    try {
+      return apiClient.invokeAPI(path, "POST", new ArrayList<Pair>(), null, headerParams,
+          formParams, apiClient.selectHeaderAccept(new String[] {"application/json"}),
+          apiClient.selectHeaderContentType(new String[] {"multipart/form-data"}),
+          new String[] {}, new GenericType<AttachmentInfo>() {});
+    } catch (ApiException e) {
+      throw new ApiException("Upload attachment failed: " + e);
+    }
+  }
+
   public void setSymphonyAuth(SymphonyAuth symAuth){
     this.symAuth = symAuth;
   }
@@ -35,6 +35,8 @@ import com.symphony.api.pod.model.CompanyCertType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.core.Response;
+
 /**
  * Created by nick.tarsillo on 7/1/17.
  */
@@ -75,6 +77,27 @@ public class SecurityClient {
     return response;
   }
 
+  /**
+   * Gets a company cert by fingerprint.
+   * @param fingerPrint the cert fingerprint
+   * @return the cert, or null if the pod does not know the fingerprint
+   */
+  public CompanyCertDetail getCert(String fingerPrint) throws ApiException {
+    SecurityApi securityApi = new SecurityApi(apiClient);
+
+    try {
+      return securityApi.v1CompanycertFingerPrintGetGet(fingerPrint,
+          symAuth.getSessionToken().getToken());
+    } catch (ApiException e) {
+      if (e.getCode() == Response.Status.BAD_REQUEST.getStatusCode()
+          || e.getCode() == Response.Status.NOT_FOUND.getStatusCode()) {
+        return null;
+      }
+      LOG.error("Get cert failed: ", e);
+      throw new ApiException("Get cert failed: " + e);
+    }
+  }
+
   public void setSymphonyAuth(SymphonyAuth symAuth){
     this.symAuth = symAuth;
   }
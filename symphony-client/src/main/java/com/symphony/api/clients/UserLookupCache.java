@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017 The Symphony Software Foundation
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.api.clients;
+
+import com.symphony.api.pod.client.ApiException;
+import com.symphony.api.pod.model.UserV2;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the users looked up through UsersClient.
+ * Users that were found and users that were not are kept for different times,
+ * since a missing user may be created at any moment.
+ * Concurrent lookups of the same key share a single pod call, whether they are single or batched.
+ */
+public class UserLookupCache {
+  private final Cache<String, UserV2> users;
+  private final Cache<String, Boolean> missingUsers;
+  private final ConcurrentHashMap<String, CompletableFuture<UserV2>> inFlight =
+      new ConcurrentHashMap<>();
+
+  /**
+   * @param hitTtlMillis how long users that were found are kept
+   * @param missTtlMillis how long users that were not found are kept
+   * @param maxEntries the maximum number of users kept, and of missing users kept
+   */
+  public UserLookupCache(long hitTtlMillis, long missTtlMillis, int maxEntries) {
+    this.users = CacheBuilder.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfterWrite(hitTtlMillis, TimeUnit.MILLISECONDS)
+        .build();
+    this.missingUsers = CacheBuilder.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfterWrite(missTtlMillis, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /**
+   * Gets a user from the cache, or looks it up.
+   * @param key the lookup key
+   * @param lookup looks up the user on the pod
+   * @return the user, or null if the user does not exist
+   */
+  public UserV2 get(String key, Lookup lookup) throws ApiException {
+    UserV2 cachedUser = users.getIfPresent(key);
+    if (cachedUser != null || missingUsers.getIfPresent(key) != null) {
+      return cachedUser;
+    }
+
+    CompletableFuture<UserV2> flight = new CompletableFuture<>();
+    CompletableFuture<UserV2> running = inFlight.putIfAbsent(key, flight);
+    if (running != null) {
+      return await(running);
+    }
+
+    UserV2 user;
+    try {
+      user = lookup.lookup();
+    } catch (ApiException | RuntimeException e) {
+      inFlight.remove(key, flight);
+      flight.completeExceptionally(e);
+      throw e;
+    }
+
+    land(key, flight, user);
+    return user;
+  }
+
+  /**
+   * Gets users from the cache, and looks up the rest in one batch.
+   * Keys that are already being looked up by another caller are waited on, not looked up again.
+   * @param keys the lookup keys
+   * @param lookup looks up the missing users on the pod
+   * @return the users by key, with null for users that do not exist
+   */
+  public Map<String, UserV2> getAll(Collection<String> keys, BatchLookup lookup)
+      throws ApiException {
+    Map<String, UserV2> found = new HashMap<>();
+    Map<String, CompletableFuture<UserV2>> owned = new LinkedHashMap<>();
+    Map<String, CompletableFuture<UserV2>> joined = new LinkedHashMap<>();
+    for (String key : keys) {
+      UserV2 cachedUser = users.getIfPresent(key);
+      if (cachedUser != null || missingUsers.getIfPresent(key) != null) {
+        found.put(key, cachedUser);
+        continue;
+      }
+
+      CompletableFuture<UserV2> flight = new CompletableFuture<>();
+      CompletableFuture<UserV2> running = inFlight.putIfAbsent(key, flight);
+      if (running != null) {
+        joined.put(key, running);
+      } else {
+        owned.put(key, flight);
+      }
+    }
+
+    //Owned keys are always completed before waiting on others, so callers never wait on each other
+    if (!owned.isEmpty()) {
+      Map<String, UserV2> looked;
+      try {
+        looked = lookup.lookup(new ArrayList<>(owned.keySet()));
+      } catch (ApiException | RuntimeException e) {
+        for (Map.Entry<String, CompletableFuture<UserV2>> flight : owned.entrySet()) {
+          inFlight.remove(flight.getKey(), flight.getValue());
+          flight.getValue().completeExceptionally(e);
+        }
+        throw e;
+      }
+
+      for (Map.Entry<String, CompletableFuture<UserV2>> flight : owned.entrySet()) {
+        UserV2 user = looked.get(flight.getKey());
+        found.put(flight.getKey(), user);
+        land(flight.getKey(), flight.getValue(), user);
+      }
+    }
+
+    for (Map.Entry<String, CompletableFuture<UserV2>> flight : joined.entrySet()) {
+      found.put(flight.getKey(), await(flight.getValue()));
+    }
+    return found;
+  }
+
+  /**
+   * Drops a key, such as after creating the user it looks up.
+   * Lookups of the key that are still running are not cached either.
+   * @param key the lookup key
+   */
+  public void invalidate(String key) {
+    inFlight.remove(key);
+    users.invalidate(key);
+    missingUsers.invalidate(key);
+  }
+
+  /**
+   * Completes a lookup, and caches its result.
+   * If the key was invalidated during the lookup, the result may already be stale, so it is not cached.
+   */
+  private void land(String key, CompletableFuture<UserV2> flight, UserV2 user) {
+    if (inFlight.remove(key, flight)) {
+      if (user != null) {
+        missingUsers.invalidate(key);
+        users.put(key, user);
+      } else {
+        users.invalidate(key);
+        missingUsers.put(key, Boolean.TRUE);
+      }
+    }
+    flight.complete(user);
+  }
+
+  private UserV2 await(CompletableFuture<UserV2> running) throws ApiException {
+    try {
+      return running.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ApiException("Interrupted while waiting for user lookup.");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ApiException) {
+        throw (ApiException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new ApiException("User lookup failed: " + e.getCause());
+    }
+  }
+
+  /**
+   * Looks up a user on the pod.
+   */
+  public interface Lookup {
+    /**
+     * @return the user, or null if the user does not exist
+     */
+    UserV2 lookup() throws ApiException;
+  }
+
+  /**
+   * Looks up a batch of users on the pod.
+   */
+  public interface BatchLookup {
+    /**
+     * @param keys the lookup keys
+     * @return the users found, by key. Keys of users that do not exist may be left out.
+     */
+    Map<String, UserV2> lookup(Collection<String> keys) throws ApiException;
+  }
+}
@@ -37,6 +37,19 @@ import com.symphony.api.pod.model.UserAppEntitlementList;
 import com.symphony.api.pod.model.UserCreate;
 import com.symphony.api.pod.model.UserDetail;
 import com.symphony.api.pod.model.UserV2;
+import com.symphony.api.pod.model.V2UserList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ws.rs.core.Response;
 
@@ -44,8 +57,14 @@ import javax.ws.rs.core.Response;
  * Created by nick.tarsillo on 7/1/17.
  */
 public class UsersClient {
+  private static final int BATCH_LOOKUP_SIZE = 100;
+  private static final int LOOKUP_THREADS = 8;
+  private static ExecutorService lookupExecutor;
+
   private final ApiClient apiClient;
   private SymphonyAuth symAuth;
+  private UserLookupCache lookupCache;
+  private volatile boolean batchLookupSupported = true;
 
   public UsersClient(SymphonyAuth symAuth, String serviceUrl) {
     this.symAuth = symAuth;
@@ -65,6 +84,11 @@ public class UsersClient {
       throw new ApiException("Could not create user: " + e.getMessage());
     }
 
+    if (lookupCache != null && user.getUserAttributes() != null) {
+      lookupCache.invalidate(emailKey(user.getUserAttributes().getEmailAddress()));
+      lookupCache.invalidate(usernameKey(user.getUserAttributes().getUserName()));
+    }
+
     return userDetail;
   }
 
@@ -97,51 +121,223 @@ public class UsersClient {
   }
 
   public SymphonyUser userSearchByEmail(String email) throws ApiException {
-    UsersApi userApi = new UsersApi(apiClient);
-
-    SymphonyUser symphonyUser;
-    try {
-      symphonyUser = new SymphonyUser(userApi.v2UserGet(
-          symAuth.getSessionToken().getToken(), null, email, null, false));
-    } catch (ApiException e) {
-      throw new ApiException("User get failed: " + e);
+    UserV2 userV2 = getUserByEmail(email);
+    if (userV2 == null) {
+      throw new ApiException("User get failed: no user with email " + email + ".");
     }
 
-    return symphonyUser;
+    return new SymphonyUser(userV2);
   }
 
   public boolean userExistsByEmail(String email) throws ApiException {
+    return getUserByEmail(email) != null;
+  }
+
+  public boolean userExistsByUsername(String username) throws ApiException {
+    if (lookupCache == null) {
+      return getUser(null, username, true) != null;
+    }
+    return lookupCache.get(usernameKey(username), () -> getUser(null, username, true)) != null;
+  }
+
+  /**
+   * Looks up users by email in as few pod calls as possible.
+   * Up to 100 emails are looked up per call. Pods without the multi user lookup
+   * are sent concurrent single lookups instead.
+   * @param emails the emails to look up
+   * @return the users by email, leaving out emails without a user
+   */
+  public Map<String, UserV2> lookupByEmails(Collection<String> emails) throws ApiException {
+    return lookupAll(emails, false);
+  }
+
+  /**
+   * Looks up local users by username in as few pod calls as possible.
+   * @param usernames the usernames to look up
+   * @return the users by username, leaving out usernames without a user
+   */
+  public Map<String, UserV2> lookupByUsernames(Collection<String> usernames) throws ApiException {
+    return lookupAll(usernames, true);
+  }
+
+  private Map<String, UserV2> lookupAll(Collection<String> values, boolean byUsername)
+      throws ApiException {
+    Map<String, String> valuesByKey = new LinkedHashMap<>();
+    for (String value : values) {
+      valuesByKey.put(lookupKey(value, byUsername), value);
+    }
+
+    Map<String, UserV2> usersByKey;
+    if (lookupCache == null) {
+      usersByKey = getUsers(valuesByKey.values(), byUsername);
+    } else {
+      usersByKey = lookupCache.getAll(valuesByKey.keySet(), keys -> {
+        List<String> missingValues = new ArrayList<>();
+        for (String key : keys) {
+          missingValues.add(valuesByKey.get(key));
+        }
+        return getUsers(missingValues, byUsername);
+      });
+    }
+
+    Map<String, UserV2> users = new HashMap<>();
+    for (String value : values) {
+      UserV2 user = usersByKey.get(lookupKey(value, byUsername));
+      if (user != null) {
+        users.put(value, user);
+      }
+    }
+    return users;
+  }
+
+  private UserV2 getUserByEmail(String email) throws ApiException {
+    if (lookupCache == null) {
+      return getUser(email, null, false);
+    }
+    return lookupCache.get(emailKey(email), () -> getUser(email, null, false));
+  }
+
+  /**
+   * Looks up a user on the pod.
+   * @return the user, or null if there is no such user
+   */
+  private UserV2 getUser(String email, String username, boolean local) throws ApiException {
     UsersApi userApi = new UsersApi(apiClient);
 
-    UserV2 userV2;
     try {
-      userV2 = userApi.v2UserGet(symAuth.getSessionToken().getToken(), null, email, null, false);
+      return userApi.v2UserGet(symAuth.getSessionToken().getToken(), null, email, username, local);
     } catch (ApiException e) {
       if (e.getCode() == Response.Status.NO_CONTENT.getStatusCode()) {
-        return false;
+        return null;
       } else {
         throw new ApiException("User get failed: " + e);
       }
     }
+  }
+
+  /**
+   * Looks up users on the pod by email or username, in batches where the pod supports it.
+   * @return the users found, by lookup key
+   */
+  private Map<String, UserV2> getUsers(Collection<String> values, boolean byUsername)
+      throws ApiException {
+    Map<String, UserV2> users = new HashMap<>();
+    List<String> batched = new ArrayList<>();
+    List<String> single = new ArrayList<>();
+    for (String value : values) {
+      //Commas separate the values of a batch
+      if (value != null && !value.contains(",")) {
+        batched.add(value);
+      } else {
+        single.add(value);
+      }
+    }
+
+    int from = 0;
+    while (from < batched.size() && batchLookupSupported) {
+      int to = Math.min(from + BATCH_LOOKUP_SIZE, batched.size());
+      if (!getUserBatch(batched.subList(from, to), byUsername, users)) {
+        break;
+      }
+      from = to;
+    }
+    single.addAll(batched.subList(from, batched.size()));
 
-    return userV2 != null;
+    getUsersConcurrently(single, byUsername, users);
+    return users;
   }
 
-  public boolean userExistsByUsername(String username) throws ApiException {
+  /**
+   * Looks up a batch of users with the multi user lookup.
+   * Usernames are only looked up among local users.
+   * @return false if the pod does not support the multi user lookup
+   */
+  private boolean getUserBatch(List<String> values, boolean byUsername, Map<String, UserV2> users)
+      throws ApiException {
     UsersApi userApi = new UsersApi(apiClient);
 
-    UserV2 userV2;
+    String joined = String.join(",", values);
+    V2UserList userList;
     try {
-      userV2 = userApi.v2UserGet(symAuth.getSessionToken().getToken(), null, null, username, true);
+      userList = userApi.v3UsersGet(symAuth.getSessionToken().getToken(), null,
+          byUsername ? null : joined, byUsername ? joined : null, byUsername);
     } catch (ApiException e) {
       if (e.getCode() == Response.Status.NO_CONTENT.getStatusCode()) {
+        return true;
+      } else if (e.getCode() == Response.Status.NOT_FOUND.getStatusCode()) {
+        batchLookupSupported = false;
         return false;
       } else {
         throw new ApiException("User get failed: " + e);
       }
     }
 
-    return userV2 != null;
+    if (userList != null && userList.getUsers() != null) {
+      for (UserV2 user : userList.getUsers()) {
+        users.put(lookupKey(byUsername ? user.getUsername() : user.getEmailAddress(), byUsername),
+            user);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Looks up users one by one, with the lookups running at the same time.
+   */
+  private void getUsersConcurrently(List<String> values, boolean byUsername,
+      Map<String, UserV2> users) throws ApiException {
+    Map<String, Future<UserV2>> lookups = new LinkedHashMap<>();
+    for (String value : values) {
+      lookups.put(value, getLookupExecutor().submit(() -> byUsername
+          ? getUser(null, value, true) : getUser(value, null, false)));
+    }
+
+    try {
+      for (Map.Entry<String, Future<UserV2>> lookup : lookups.entrySet()) {
+        UserV2 user = lookup.getValue().get();
+        if (user != null) {
+          users.put(lookupKey(lookup.getKey(), byUsername), user);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ApiException("Interrupted while looking up users.");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ApiException) {
+        throw (ApiException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new ApiException("User get failed: " + e.getCause());
+    } finally {
+      for (Future<UserV2> lookup : lookups.values()) {
+        lookup.cancel(true);
+      }
+    }
+  }
+
+  private static synchronized ExecutorService getLookupExecutor() {
+    if (lookupExecutor == null) {
+      AtomicInteger threadCount = new AtomicInteger();
+      lookupExecutor = Executors.newFixedThreadPool(LOOKUP_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "user-lookup-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return lookupExecutor;
+  }
+
+  private static String lookupKey(String value, boolean byUsername) {
+    return byUsername ? usernameKey(value) : emailKey(value);
+  }
+
+  private static String emailKey(String email) {
+    return "email:" + (email == null ? null : email.toLowerCase());
+  }
+
+  private static String usernameKey(String username) {
+    return "username:" + (username == null ? null : username.toLowerCase());
   }
 
   public UserAppEntitlementList updateUserApps(Long userId, UserAppEntitlementList entitlements)
@@ -175,4 +371,12 @@ public class UsersClient {
   public void setSymphonyAuth(SymphonyAuth symAuth){
     this.symAuth = symAuth;
   }
+
+  /**
+   * Caches user lookups by email and username. Caching is off unless a cache is set.
+   * @param lookupCache the cache, or null to stop caching
+   */
+  public void setLookupCache(UserLookupCache lookupCache) {
+    this.lookupCache = lookupCache;
+  }
 }